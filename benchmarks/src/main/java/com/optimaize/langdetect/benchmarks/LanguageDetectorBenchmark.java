@@ -0,0 +1,104 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.optimaize.langdetect.benchmarks;
+
+import com.google.common.base.Optional;
+import com.optimaize.langdetect.BatchLanguageDetector;
+import com.optimaize.langdetect.DetectedLanguage;
+import com.optimaize.langdetect.DetectionContext;
+import com.optimaize.langdetect.DetectionResult;
+import com.optimaize.langdetect.LanguageDetectorBuilder;
+import com.optimaize.langdetect.i18n.LdLocale;
+import com.optimaize.langdetect.ngram.NgramExtractors;
+import com.optimaize.langdetect.profiles.LanguageProfileReader;
+import com.optimaize.langdetect.text.CommonTextObjectFactories;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Detecting the language with all built-in languages, per text length and scoring mode.
+ *
+ * <p>The text objects are made in the setup, see {@link TextObjectFactoryBenchmark} for that part.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LanguageDetectorBenchmark {
+
+    @Param({"short", "medium", "long"})
+    public String textLength;
+
+    /**
+     * linear: the default. log: {@link LanguageDetectorBuilder#logScoring}.
+     * exhaustive: {@link LanguageDetectorBuilder#exhaustiveLongText}.
+     */
+    @Param({"linear", "log", "exhaustive"})
+    public String scoring;
+
+    private BatchLanguageDetector languageDetector;
+    private CharSequence text;
+
+    @Setup
+    public void setup() throws IOException {
+        languageDetector = LanguageDetectorBuilder.create(NgramExtractors.standard())
+                .logScoring(scoring.equals("log"))
+                .exhaustiveLongText(scoring.equals("exhaustive"))
+                .withProfiles(new LanguageProfileReader().readAllBuiltIn())
+                .buildBatch();
+        text = CommonTextObjectFactories.forDetectingOnLargeText().forText(SampleTexts.get(textLength));
+    }
+
+    @Benchmark
+    public Optional<LdLocale> detect() {
+        return languageDetector.detect(text);
+    }
+
+    @Benchmark
+    public List<DetectedLanguage> getProbabilities() {
+        return languageDetector.getProbabilities(text);
+    }
+
+    /**
+     * With a reused context and result, this should not allocate anything (see the gc profiler).
+     */
+    @Benchmark
+    public DetectionResult detectWithContext(ThreadBuffers buffers) {
+        languageDetector.detect(text, buffers.context, buffers.result);
+        return buffers.result;
+    }
+
+    /**
+     * Only the best language, no sorting and no allocation.
+     */
+    @Benchmark
+    public int detectTop(ThreadBuffers buffers) {
+        return languageDetector.detectTop(text, buffers.context, buffers.topLanguage, buffers.topProbability);
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadBuffers {
+        final DetectionContext context = new DetectionContext();
+        final DetectionResult result = new DetectionResult();
+        final int[] topLanguage = new int[1];
+        final double[] topProbability = new double[1];
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.optimaize.langdetect.benchmarks;
+
+import com.optimaize.langdetect.ngram.NgramExtractor;
+import com.optimaize.langdetect.ngram.NgramExtractors;
+import com.optimaize.langdetect.ngram.NgramVisitor;
+import com.optimaize.langdetect.text.CommonTextObjectFactories;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extracting the n-grams of a text, as Strings and with the allocation-free visitor.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NgramExtractorBenchmark {
+
+    @Param({"short", "medium", "long"})
+    public String textLength;
+
+    private NgramExtractor ngramExtractor;
+    private CharSequence text;
+    private final SumVisitor visitor = new SumVisitor();
+
+    @Setup
+    public void setup() {
+        ngramExtractor = NgramExtractors.standard();
+        text = CommonTextObjectFactories.forDetectingOnLargeText().forText(SampleTexts.get(textLength));
+    }
+
+    @Benchmark
+    public List<String> extractGrams() {
+        return ngramExtractor.extractGrams(text);
+    }
+
+    @Benchmark
+    public Map<String, Integer> extractCountedGrams() {
+        return ngramExtractor.extractCountedGrams(text);
+    }
+
+    @Benchmark
+    public long visitGrams() {
+        visitor.sum = 0;
+        ngramExtractor.visitGrams(text, visitor);
+        return visitor.sum;
+    }
+
+    /**
+     * Consumes the grams so that the work can't be optimized away.
+     */
+    private static final class SumVisitor implements NgramVisitor {
+        long sum;
+        @Override
+        public void visit(long packedGram, int length, int position) {
+            sum += packedGram;
+        }
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.optimaize.langdetect.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The texts the benchmarks run on, by length.
+ *
+ * <p>The medium and long texts come from the wikipedia samples of the library's tests.</p>
+ */
+final class SampleTexts {
+
+    /**
+     * Tweet-like, below the default short text limit of the detector.
+     */
+    private static final String SHORT = "Endlich wieder in Berlin, das Wetter ist super!";
+
+    private static final int MEDIUM_LENGTH = 1000;
+
+    private SampleTexts() {
+    }
+
+    /**
+     * @param textLength "short", "medium" or "long"
+     */
+    static String get(String textLength) {
+        switch (textLength) {
+            case "short":
+                return SHORT;
+            case "medium":
+                return wikipedia().substring(0, MEDIUM_LENGTH);
+            case "long":
+                return wikipedia();
+            default:
+                throw new IllegalArgumentException("Unknown text length: " + textLength);
+        }
+    }
+
+    private static String wikipedia() {
+        try (InputStream in = SampleTexts.class.getResourceAsStream("/texts/de-wikipedia-Deutschland.txt")) {
+            if (in == null) throw new IllegalStateException("Sample text not found on the classpath!");
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                sb.append(line).append(' ');
+            }
+            return sb.toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.optimaize.langdetect.benchmarks;
+
+import com.optimaize.langdetect.text.CommonTextObjectFactories;
+import com.optimaize.langdetect.text.TextObject;
+import com.optimaize.langdetect.text.TextObjectFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Making the text objects: normalizing, and with the large text factory also removing urls and minority scripts.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextObjectFactoryBenchmark {
+
+    @Param({"short", "medium", "long"})
+    public String textLength;
+
+    private String text;
+    private TextObjectFactory largeTextFactory;
+    private TextObjectFactory shortCleanTextFactory;
+
+    @Setup
+    public void setup() {
+        text = SampleTexts.get(textLength);
+        largeTextFactory = CommonTextObjectFactories.forDetectingOnLargeText();
+        shortCleanTextFactory = CommonTextObjectFactories.forDetectingShortCleanText();
+    }
+
+    @Benchmark
+    public TextObject largeTextFactory() {
+        return largeTextFactory.forText(text);
+    }
+
+    @Benchmark
+    public TextObject shortCleanTextFactory() {
+        return shortCleanTextFactory.forText(text);
+    }
+
+}
@@ -0,0 +1,214 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.optimaize.langdetect;
+
+import com.google.common.base.Optional;
+import com.optimaize.langdetect.i18n.LdLocale;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of {@link BatchLanguageDetector#detectAll}: for each text the same as
+ * {@link LanguageDetector#getProbabilities} and {@link LanguageDetector#detect} would return.
+ *
+ * <p>Stored compactly in primitive arrays, the {@link DetectedLanguage} objects are only created on request.
+ * The allocation-free accessors are {@link #getNumLanguages}, {@link #getLocale} and {@link #getProbability}.</p>
+ *
+ * <p>This class is immutable.</p>
+ */
+public final class BatchDetectionResult {
+
+    @NotNull
+    private final List<LdLocale> languages;
+    private final double minimalConfidence;
+    /**
+     * Key = text index, value = where its languages start in languageIndexes and probabilities.
+     * Has one more entry for the end of the last text.
+     */
+    @NotNull
+    private final int[] offsets;
+    @NotNull
+    private final int[] languageIndexes;
+    @NotNull
+    private final double[] probabilities;
+
+    private BatchDetectionResult(@NotNull List<LdLocale> languages, double minimalConfidence,
+                                 @NotNull int[] offsets, @NotNull int[] languageIndexes, @NotNull double[] probabilities) {
+        this.languages = languages;
+        this.minimalConfidence = minimalConfidence;
+        this.offsets = offsets;
+        this.languageIndexes = languageIndexes;
+        this.probabilities = probabilities;
+    }
+
+    /**
+     * @return the number of texts.
+     */
+    public int size() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * @param textIndex 0 to size()-1, in the order of the texts passed in.
+     * @return How many languages were detected for the text. May be 0.
+     */
+    public int getNumLanguages(int textIndex) {
+        checkIndex(textIndex);
+        return offsets[textIndex + 1] - offsets[textIndex];
+    }
+
+    /**
+     * @param rank 0 to getNumLanguages()-1, 0 is the best.
+     */
+    @NotNull
+    public LdLocale getLocale(int textIndex, int rank) {
+        return languages.get(languageIndexes[position(textIndex, rank)]);
+    }
+
+    /**
+     * @param rank 0 to getNumLanguages()-1, 0 is the best.
+     * @return 0-1
+     */
+    public double getProbability(int textIndex, int rank) {
+        return probabilities[position(textIndex, rank)];
+    }
+
+    /**
+     * @return Same as {@link LanguageDetector#detect}: the best language if the algorithm is very confident.
+     */
+    @NotNull
+    public Optional<LdLocale> getLanguage(int textIndex) {
+        if (getNumLanguages(textIndex) == 0) return Optional.absent();
+        int position = offsets[textIndex];
+        if (probabilities[position] >= minimalConfidence) {
+            return Optional.of(languages.get(languageIndexes[position]));
+        } else {
+            return Optional.absent();
+        }
+    }
+
+    /**
+     * @return Same as {@link LanguageDetector#getProbabilities}: sorted from better to worse, may be empty.
+     */
+    @NotNull
+    public List<DetectedLanguage> getProbabilities(int textIndex) {
+        int numLanguages = getNumLanguages(textIndex);
+        if (numLanguages == 0) return Collections.emptyList();
+        List<DetectedLanguage> list = new ArrayList<>(numLanguages);
+        for (int position = offsets[textIndex]; position < offsets[textIndex + 1]; position++) {
+            list.add(new DetectedLanguage(languages.get(languageIndexes[position]), probabilities[position]));
+        }
+        return list;
+    }
+
+    private int position(int textIndex, int rank) {
+        if (rank < 0 || rank >= getNumLanguages(textIndex)) {
+            throw new IndexOutOfBoundsException("rank "+rank+" for "+getNumLanguages(textIndex)+" languages");
+        }
+        return offsets[textIndex] + rank;
+    }
+
+    private void checkIndex(int textIndex) {
+        if (textIndex < 0 || textIndex >= size()) {
+            throw new IndexOutOfBoundsException("textIndex "+textIndex+" for "+size()+" texts");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BatchDetectionResult{size=" + size() + "}";
+    }
+
+
+    /**
+     * Collects the results text by text.
+     */
+    static final class Builder {
+
+        @NotNull
+        private final List<LdLocale> languages;
+        private final double minimalConfidence;
+
+        private int size = 0;
+        private int[] offsets = new int[16];
+        private int numEntries = 0;
+        private int[] languageIndexes = new int[16];
+        private double[] probabilities = new double[16];
+
+        Builder(@NotNull List<LdLocale> languages, double minimalConfidence) {
+            this.languages = languages;
+            this.minimalConfidence = minimalConfidence;
+        }
+
+        /**
+         * Adds the result of the next text.
+         * @param prob probability per language, ignored if numLanguages is 0.
+         * @param order the language indexes, sorted from better to worse.
+         * @param numLanguages how many entries of order are used.
+         */
+        void add(double[] prob, @NotNull int[] order, int numLanguages) {
+            ensureEntryCapacity(numEntries + numLanguages);
+            for (int i = 0; i < numLanguages; i++) {
+                languageIndexes[numEntries] = order[i];
+                probabilities[numEntries] = prob[order[i]];
+                numEntries++;
+            }
+            endText();
+        }
+
+        /**
+         * Appends all texts of the other builder.
+         */
+        void addAll(@NotNull Builder other) {
+            ensureEntryCapacity(numEntries + other.numEntries);
+            System.arraycopy(other.languageIndexes, 0, languageIndexes, numEntries, other.numEntries);
+            System.arraycopy(other.probabilities, 0, probabilities, numEntries, other.numEntries);
+            int base = numEntries;
+            for (int i = 0; i < other.size; i++) {
+                numEntries = base + other.offsets[i + 1];
+                endText();
+            }
+        }
+
+        private void endText() {
+            if (size + 2 > offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            size++;
+            offsets[size] = numEntries;
+        }
+
+        private void ensureEntryCapacity(int capacity) {
+            if (capacity > languageIndexes.length) {
+                int newLength = Math.max(capacity, languageIndexes.length * 2);
+                languageIndexes = Arrays.copyOf(languageIndexes, newLength);
+                probabilities = Arrays.copyOf(probabilities, newLength);
+            }
+        }
+
+        @NotNull
+        BatchDetectionResult build() {
+            return new BatchDetectionResult(languages, minimalConfidence,
+                    Arrays.copyOf(offsets, size + 1),
+                    Arrays.copyOf(languageIndexes, numEntries),
+                    Arrays.copyOf(probabilities, numEntries));
+        }
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.optimaize.langdetect;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * A {@link LanguageDetector} that can reuse its scratch buffers from one text to the next, and detect
+ * many texts at once.
+ *
+ * <p>See {@link LanguageDetectorBuilder#buildBatch()}.</p>
+ */
+public interface BatchLanguageDetector extends LanguageDetector {
+
+    /**
+     * Same as {@link #getProbabilities(CharSequence)}, written into a result object owned by the caller.
+     *
+     * <p>With a context and a result reused from one text to the next (one each per thread) this does not
+     * allocate any memory once the buffers have grown to the needed size.</p>
+     *
+     * @param text You probably want a {@link com.optimaize.langdetect.text.TextObject}.
+     * @param context The scratch buffers, not shared with another thread at the same time.
+     * @param result Overwritten with the languages, sorted from better to worse. May be empty.
+     */
+    void detect(CharSequence text, DetectionContext context, DetectionResult result);
+
+    /**
+     * Only the best few languages of {@link #getProbabilities(CharSequence)}, without sorting all of them, written into
+     * arrays owned by the caller. Typically 1 to 3 are asked for.
+     *
+     * <p>This does not allocate any memory once the context has grown to the needed size. The languages are
+     * identified by their index, {@link DetectionContext#getLanguage(int)} gives the locale.</p>
+     *
+     * @param text You probably want a {@link com.optimaize.langdetect.text.TextObject}.
+     * @param context The scratch buffers, not shared with another thread at the same time.
+     * @param languageIndexes Its length is how many languages are asked for. Overwritten with the language
+     *                        indexes, sorted from better to worse.
+     * @param probabilities At least as long as languageIndexes. Overwritten with the probabilities, in the
+     *                      same order.
+     * @return How many entries were written, 0 to languageIndexes.length.
+     */
+    int detectTop(CharSequence text, DetectionContext context, int[] languageIndexes, double[] probabilities);
+
+    /**
+     * Detects the languages of many texts in the calling thread.
+     *
+     * <p>Gives the same results as calling {@link #getProbabilities(CharSequence)} for each text, but the scratch buffers
+     * are reused from one text to the next.</p>
+     *
+     * @param texts You probably want {@link com.optimaize.langdetect.text.TextObject}s.
+     * @return One result per text, in the same order.
+     */
+    BatchDetectionResult detectAll(List<? extends CharSequence> texts);
+
+    /**
+     * Same as {@link #detectAll(java.util.List)}, with the texts spread in chunks over the executor.
+     * Each chunk reuses its own scratch buffers. This method waits until all chunks are done.
+     *
+     * @param executor The caller owns it, it is not shut down.
+     * @return One result per text, in the same order.
+     * @throws InterruptedException if interrupted while waiting, the remaining chunks are cancelled.
+     */
+    BatchDetectionResult detectAll(List<? extends CharSequence> texts, ExecutorService executor) throws InterruptedException;
+
+}
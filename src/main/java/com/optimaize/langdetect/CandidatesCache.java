@@ -0,0 +1,74 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.optimaize.langdetect;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Caches {@link LanguageCandidates} by a bit set of up to 64 scripts or groups, without creating a key object
+ * per lookup.
+ *
+ * <p>Each key has one slot, a key that maps to a taken slot replaces the one in there. It's for the few
+ * combinations that come up again and again, it's fine to compute a rare one once more.</p>
+ *
+ * <p>This class is thread-safe.</p>
+ */
+final class CandidatesCache {
+
+    @NotNull
+    private final AtomicReferenceArray<Entry> slots;
+    private final int shift;
+
+    /**
+     * @param size rounded up to a power of 2.
+     */
+    CandidatesCache(int size) {
+        int bits = 32 - Integer.numberOfLeadingZeros(Math.max(size, 2) - 1);
+        this.slots = new AtomicReferenceArray<>(1 << bits);
+        this.shift = 64 - bits;
+    }
+
+    private int slot(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    /**
+     * @return null if not cached.
+     */
+    @Nullable
+    LanguageCandidates get(long key) {
+        Entry entry = slots.get(slot(key));
+        return (entry == null || entry.key != key) ? null : entry.candidates;
+    }
+
+    void put(long key, @NotNull LanguageCandidates candidates) {
+        slots.set(slot(key), new Entry(key, candidates));
+    }
+
+    private static final class Entry {
+        private final long key;
+        @NotNull
+        private final LanguageCandidates candidates;
+
+        private Entry(long key, @NotNull LanguageCandidates candidates) {
+            this.key = key;
+            this.candidates = candidates;
+        }
+    }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.optimaize.langdetect;
+
+import com.optimaize.langdetect.i18n.LdLocale;
+import com.optimaize.langdetect.text.UnicodeScripts;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Random;
+
+/**
+ * The scratch buffers a {@link LanguageDetector} needs to detect the language of one text.
+ *
+ * <p>Pass the same instance to {@link BatchLanguageDetector#detect(CharSequence, DetectionContext, DetectionResult)}
+ * for one text after the other, and the detection does not allocate any memory once the buffers have grown
+ * to the needed size. The results are the same as without reusing, everything is reset at the start of each
+ * detection (the random generator gets the seed again).</p>
+ *
+ * <p>The buffers are made for the languages of the detector the context is used with. Using it with another
+ * detector works, but allocates new buffers.</p>
+ *
+ * <p>This class is mutable and not thread-safe: one instance per thread. For example:</p>
+ * <pre>
+ * private static final ThreadLocal&lt;DetectionContext&gt; CONTEXT = new ThreadLocal&lt;DetectionContext&gt;() {
+ *     protected DetectionContext initialValue() {
+ *         return new DetectionContext();
+ *     }
+ * };
+ * </pre>
+ */
+public final class DetectionContext {
+
+    /**
+     * The data the buffers are made for, null until first used.
+     */
+    @Nullable
+    private NgramFrequencyData ngramFrequencyData;
+
+    TextNgrams ngrams;
+    /**
+     * The probabilities of one trial.
+     */
+    double[] prob;
+    /**
+     * The result of the detection, per language.
+     */
+    double[] langprob;
+    /**
+     * The language indexes of the result, sorted by probability.
+     */
+    int[] order;
+    @NotNull
+    final Random random = new Random();
+
+    /**
+     * For the {@link LanguageDetectorBuilder#scriptPruning script pruning}, null until needed.
+     */
+    @Nullable
+    private int[] scriptCounts;
+    /**
+     * Same as prob and langprob when scoring fewer languages. Key = the number of languages, null until needed.
+     */
+    @Nullable
+    private double[][] fewerProb;
+    @Nullable
+    private double[][] fewerLangprob;
+
+    public DetectionContext() {
+    }
+
+    DetectionContext(@NotNull NgramFrequencyData ngramFrequencyData) {
+        bind(ngramFrequencyData);
+    }
+
+    /**
+     * @param languageIndex as returned by
+     *        {@link BatchLanguageDetector#detectTop(CharSequence, DetectionContext, int[], double[])} with this context.
+     * @return the language of the last detection with this context.
+     * @throws IllegalStateException if this context was not used yet.
+     */
+    @NotNull
+    public LdLocale getLanguage(int languageIndex) throws IllegalStateException {
+        if (ngramFrequencyData == null) throw new IllegalStateException("This context was not used for a detection yet!");
+        return ngramFrequencyData.getLanguage(languageIndex);
+    }
+
+    /**
+     * Makes the buffers fit the data. Only allocates when the data is not the same as last time.
+     */
+    void bind(@NotNull NgramFrequencyData ngramFrequencyData) {
+        if (this.ngramFrequencyData == ngramFrequencyData) return;
+        int numLanguages = ngramFrequencyData.getLanguageList().size();
+        this.ngrams = new TextNgrams(ngramFrequencyData);
+        this.prob = new double[numLanguages];
+        this.langprob = new double[numLanguages];
+        this.order = new int[numLanguages];
+        this.fewerProb = null;
+        this.fewerLangprob = null;
+        this.ngramFrequencyData = ngramFrequencyData;
+    }
+
+    /**
+     * @return a buffer of {@link UnicodeScripts#COUNT}.
+     */
+    @NotNull
+    int[] scriptCounts() {
+        if (scriptCounts == null) scriptCounts = new int[UnicodeScripts.COUNT];
+        return scriptCounts;
+    }
+
+    /**
+     * @return prob, or a buffer of that length when scoring fewer languages.
+     */
+    @NotNull
+    double[] prob(int numLanguages) {
+        if (numLanguages == prob.length) return prob;
+        if (fewerProb == null) fewerProb = new double[prob.length][];
+        if (fewerProb[numLanguages] == null) fewerProb[numLanguages] = new double[numLanguages];
+        return fewerProb[numLanguages];
+    }
+
+    /**
+     * @return langprob, or a buffer of that length when scoring fewer languages.
+     */
+    @NotNull
+    double[] langprob(int numLanguages) {
+        if (numLanguages == langprob.length) return langprob;
+        if (fewerLangprob == null) fewerLangprob = new double[langprob.length][];
+        if (fewerLangprob[numLanguages] == null) fewerLangprob[numLanguages] = new double[numLanguages];
+        return fewerLangprob[numLanguages];
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.optimaize.langdetect;
+
+import com.optimaize.langdetect.i18n.LdLocale;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Receives the result of {@link BatchLanguageDetector#detect(CharSequence, DetectionContext, DetectionResult)}:
+ * the same as {@link LanguageDetector#getProbabilities} and {@link LanguageDetector#detect(CharSequence)} return,
+ * in primitive arrays.
+ *
+ * <p>Reuse an instance for the next text, it is overwritten. The accessors don't allocate memory,
+ * except for {@link #toList()}.</p>
+ *
+ * <p>This class is mutable and not thread-safe.</p>
+ */
+public final class DetectionResult {
+
+    @NotNull
+    private List<LdLocale> languages = Collections.emptyList();
+    private double minimalConfidence = 1d;
+    @NotNull
+    private int[] languageIndexes = new int[0];
+    @NotNull
+    private double[] probabilities = new double[0];
+    private int size = 0;
+
+    public DetectionResult() {
+    }
+
+    /**
+     * @return How many languages were detected. 0 if the program failed to detect any language, or if the
+     *         input text did not contain any usable text (just noise).
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param rank 0 to size()-1, sorted from better to worse.
+     */
+    @NotNull
+    public LdLocale getLocale(int rank) {
+        checkRank(rank);
+        return languages.get(languageIndexes[rank]);
+    }
+
+    /**
+     * @param rank 0 to size()-1, sorted from better to worse.
+     * @return 0-1
+     */
+    public double getProbability(int rank) {
+        checkRank(rank);
+        return probabilities[rank];
+    }
+
+    /**
+     * @return Same as {@link LanguageDetector#detect(CharSequence)}: the best language if the algorithm is
+     *         very confident, otherwise null.
+     */
+    @Nullable
+    public LdLocale getConfidentLanguage() {
+        if (size == 0 || probabilities[0] < minimalConfidence) return null;
+        return languages.get(languageIndexes[0]);
+    }
+
+    /**
+     * @return Same as {@link LanguageDetector#getProbabilities}, a new list.
+     */
+    @NotNull
+    public List<DetectedLanguage> toList() {
+        List<DetectedLanguage> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(new DetectedLanguage(languages.get(languageIndexes[i]), probabilities[i]));
+        }
+        return list;
+    }
+
+    private void checkRank(int rank) {
+        if (rank < 0 || rank >= size) throw new IndexOutOfBoundsException("rank " + rank + " for " + size + " languages");
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * @param prob   probability per language
+     * @param order  the language indexes, sorted from better to worse.
+     * @param size   how many entries of order are used.
+     */
+    void set(@NotNull List<LdLocale> languages, double minimalConfidence,
+             @NotNull double[] prob, @NotNull int[] order, int size) {
+        if (languageIndexes.length < size) {
+            languageIndexes = new int[order.length];
+            probabilities = new double[order.length];
+        }
+        this.languages = languages;
+        this.minimalConfidence = minimalConfidence;
+        for (int i = 0; i < size; i++) {
+            languageIndexes[i] = order[i];
+            probabilities[i] = prob[order[i]];
+        }
+        this.size = size;
+    }
+
+    @Override
+    public String toString() {
+        return toList().toString();
+    }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.optimaize.langdetect;
+
+import com.optimaize.langdetect.i18n.LdLocale;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Some of the languages of a detector, to score instead of all of them. See {@link ScriptIndex} and
+ * {@link LanguageGroups}.
+ *
+ * <p>This class is immutable and thus thread-safe.</p>
+ */
+final class LanguageCandidates {
+
+    /**
+     * The language indexes in the data of the detector, ascending.
+     */
+    @NotNull
+    final int[] languages;
+    /**
+     * A {@link NgramFrequencyData#forLanguages view} of the data with these languages, in the same order.
+     */
+    @NotNull
+    final NgramFrequencyData data;
+
+    LanguageCandidates(@NotNull int[] languages, @NotNull NgramFrequencyData data) {
+        this.languages = languages;
+        this.data = data;
+    }
+
+    /**
+     * @param languages key = language index in data, value = whether it's a candidate.
+     * @return null if none or all are candidates.
+     */
+    @Nullable
+    static LanguageCandidates of(@NotNull NgramFrequencyData data, @NotNull boolean[] languages) {
+        List<LdLocale> locales = new ArrayList<>();
+        int[] indexes = new int[languages.length];
+        for (int j=0; j<languages.length; j++) {
+            if (languages[j]) {
+                indexes[locales.size()] = j;
+                locales.add(data.getLanguage(j));
+            }
+        }
+        if (locales.isEmpty() || locales.size() == languages.length) return null;
+        return new LanguageCandidates(Arrays.copyOf(indexes, locales.size()), data.forLanguages(locales));
+    }
+
+}
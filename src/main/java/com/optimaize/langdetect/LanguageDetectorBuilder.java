@@ -20,12 +20,14 @@ import com.google.common.base.Optional;
 import com.optimaize.langdetect.i18n.LdLocale;
 import com.optimaize.langdetect.ngram.NgramExtractor;
 import com.optimaize.langdetect.profiles.LanguageProfile;
+import com.optimaize.langdetect.profiles.LanguageProfileReader;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 
 /**
@@ -51,6 +53,16 @@ public class LanguageDetectorBuilder {
     private double probabilityThreshold = 0.1;
     private double minimalConfidence = 0.9999d;
 
+    private boolean logScoring = false;
+    private boolean exhaustiveLongText = false;
+    private int maxDistinctGrams = 0;
+    private boolean earlyAccept = false;
+    private ProbabilityPrecision probabilityPrecision = ProbabilityPrecision.DOUBLE;
+    private int sparseGramLanguages = 0;
+    private double scriptPruningThreshold = -1d;
+    @Nullable
+    private List<List<LdLocale>> languageGroups;
+
     @Nullable
     private Map<LdLocale, Double> langWeightingMap;
 
@@ -59,6 +71,35 @@ public class LanguageDetectorBuilder {
     @NotNull
     private final Set<LdLocale> langsAdded = new HashSet<>();
 
+    /**
+     * Alternative to the languageProfiles, see {@link #withFrequencyData}.
+     */
+    @Nullable
+    private NgramFrequencyData ngramFrequencyData;
+
+    /**
+     * Alternative to the languageProfiles, see {@link #withLazyBuiltInLanguages}.
+     */
+    @Nullable
+    private List<LdLocale> lazyLanguages;
+    @Nullable
+    private List<LdLocale> lazyFirstLanguages;
+    private long lazyTimeoutNanos = Long.MAX_VALUE;
+    @Nullable
+    private Executor lazyExecutor;
+
+    /**
+     * Runs each task in a new daemon thread, to not keep the JVM alive.
+     */
+    private static final Executor DAEMON_THREAD_EXECUTOR = new Executor() {
+        @Override
+        public void execute(@NotNull Runnable command) {
+            Thread thread = new Thread(command, "language-detector-loader");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    };
+
     public static LanguageDetectorBuilder create(@NotNull NgramExtractor ngramExtractor) {
         return new LanguageDetectorBuilder(ngramExtractor);
     }
@@ -144,6 +185,188 @@ public class LanguageDetectorBuilder {
     }
 
 
+    /**
+     * Accumulates the n-gram probabilities as logarithms instead of multiplying them.
+     *
+     * <p>The logarithms are precomputed once per n-gram and language when building the detector, so scoring an
+     * n-gram is a plain addition per language, and there's no normalization needed in between to prevent
+     * an underflow. This is much faster, but the precomputed table takes as much memory as the n-gram
+     * frequency data itself.</p>
+     *
+     * <p>The results are comparable, but not identical to the default (linear) scoring:
+     * the short text algorithm uses all n-grams instead of stopping once a language reached 0.99999, and the
+     * long text algorithm does not vary the alpha between its trials. On the built-in test texts the
+     * best language is the same, and its probability differs by less than 0.001.</p>
+     *
+     * <p>Defaults to false, which means linear scoring. That's the old behavior.</p>
+     */
+    public LanguageDetectorBuilder logScoring(boolean logScoring) {
+        this.logScoring = logScoring;
+        return this;
+    }
+
+
+    /**
+     * Uses a deterministic algorithm for text longer than the {@link #shortTextAlgorithm} limit.
+     *
+     * <p>The default long text algorithm runs 7 trials, each drawing up to 1000 random n-grams from the text.
+     * This one instead counts the distinct n-grams of the text once, and scores each one with how often it
+     * occurs. That's less work for most texts, and the result doesn't depend on the {@link #seed}.</p>
+     *
+     * <p>It always scores in log space (see {@link #logScoring}), and thus also builds the log table.</p>
+     *
+     * <p>Defaults to false, which means random sampling. That's the old behavior.</p>
+     */
+    public LanguageDetectorBuilder exhaustiveLongText(boolean exhaustiveLongText) {
+        this.exhaustiveLongText = exhaustiveLongText;
+        return this;
+    }
+
+    /**
+     * Limits the work of the {@link #exhaustiveLongText exhaustive long text algorithm} for very long texts.
+     * The first so many distinct n-grams of the text are used (and counted until the end of the text), the
+     * others are ignored.
+     *
+     * <p>Defaults to 0, which means no limit.</p>
+     */
+    public LanguageDetectorBuilder maxDistinctGrams(int maxDistinctGrams) {
+        if (maxDistinctGrams<0) throw new IllegalArgumentException("maxDistinctGrams must be >= 0, but was: "+maxDistinctGrams);
+        this.maxDistinctGrams = maxDistinctGrams;
+        return this;
+    }
+
+    /**
+     * Lets {@link LanguageDetector#detect(CharSequence)} stop early on text that is clearly in one language.
+     *
+     * <p>The random long text algorithm runs 7 trials and takes their mean. With this, detect() stops as soon as
+     * the first trials (at least 3) have the same best language, and their mean gives it the
+     * {@link #minimalConfidence}. That's an approximation: the remaining trials could have changed the mean.
+     * {@link LanguageDetector#getProbabilities} and the batch methods always run all trials, so their best
+     * language can differ from what detect() answers. On the built-in test texts (the wikipedia texts, whole,
+     * in snippets of 100 chars and mixed by two) detect() gives the same answer as without this for 309 of
+     * 311 texts, 310 in {@link #logScoring log scoring}. On clear text it takes about 40% less time.</p>
+     *
+     * <p>Short texts, the {@link #exhaustiveLongText exhaustive algorithm} and the language groups' first
+     * stage are not affected.</p>
+     *
+     * <p>Defaults to false, which means detect() gives the same answer as getProbabilities(). That's the old
+     * behavior.</p>
+     */
+    public LanguageDetectorBuilder earlyAccept(boolean earlyAccept) {
+        this.earlyAccept = earlyAccept;
+        return this;
+    }
+
+
+    /**
+     * How the n-gram probabilities are stored in memory, see {@link ProbabilityPrecision}.
+     *
+     * <p>FLOAT halves the memory of the frequency data, LOG16 quarters it and LOG8 takes an eighth. With all
+     * built-in languages that's 66, 33, 16 or 8 MB. The linear scoring works directly on the smaller table.
+     * The {@link #logScoring log scoring} and the {@link #exhaustiveLongText exhaustive algorithm} still
+     * build their own table in full precision.</p>
+     *
+     * <p>On the built-in test texts (the wikipedia texts, whole and in snippets of 100 chars) FLOAT and LOG16 give
+     * the same best language as DOUBLE, and its probability differs by less than 0.00001. LOG8 gives another best
+     * language for 1 of 340 texts, and the probabilities differ by up to 0.15.</p>
+     *
+     * <p>Defaults to DOUBLE. That's the old behavior.</p>
+     */
+    public LanguageDetectorBuilder probabilityPrecision(@NotNull ProbabilityPrecision probabilityPrecision) {
+        this.probabilityPrecision = probabilityPrecision;
+        return this;
+    }
+
+
+    /**
+     * Stores the n-grams that only a few languages know as (language, probability) pairs instead of a full row,
+     * see {@link NgramFrequencyData#withSparseGrams}. Scoring such an n-gram only touches the languages that
+     * know it, instead of all of them.
+     *
+     * <p>With all built-in languages and 16, the frequency data takes 5 instead of 66 MB. The results are the
+     * same up to rounding. The {@link #logScoring log scoring} and the {@link #exhaustiveLongText exhaustive
+     * algorithm} don't use it.</p>
+     *
+     * <p>Defaults to 0, which means all n-grams have a full row. That's the old behavior.</p>
+     *
+     * @param maxLanguages the n-grams known by at most so many languages are stored sparse.
+     */
+    public LanguageDetectorBuilder sparseGrams(int maxLanguages) {
+        if (maxLanguages<0) throw new IllegalArgumentException("maxLanguages must be >= 0, but was: "+maxLanguages);
+        this.sparseGramLanguages = maxLanguages;
+        return this;
+    }
+
+
+    /**
+     * Only scores the languages that can be the language of the text by its script. A language has a script
+     * if at least 1% of its n-grams (by probability) have a character of it, that's looked up once when the
+     * detector is built.
+     *
+     * <p>The dominant scripts of the text are the ones that the
+     * {@link com.optimaize.langdetect.text.RemoveMinorityScriptsTextFilter} with this threshold would keep.
+     * Only the languages that have one of them are scored, the others get a probability of 0. For a text in
+     * Hangul, Thai or Greek that's 1, in Cyrillic 6, instead of all 71 built-in languages. If no loaded
+     * language has any of these scripts then all are scored, as before.</p>
+     *
+     * <p>The languages left out would end up with a probability close to 0 anyway, they know few if any
+     * n-grams of the text. With 0.3 the built-in test texts get the same languages with probabilities that
+     * differ by less than 0.00001.</p>
+     *
+     * <p>Defaults to -1, which means all languages are scored. That's the old behavior.</p>
+     *
+     * @param minorityThreshold 0-1, see {@link com.optimaize.langdetect.text.RemoveMinorityScriptsTextFilter#forThreshold}.
+     *        0 keeps all scripts of the text, a negative value turns the pruning off.
+     */
+    public LanguageDetectorBuilder scriptPruning(double minorityThreshold) {
+        if (minorityThreshold>1d) throw new IllegalArgumentException("minorityThreshold must be <= 1, but was: "+minorityThreshold);
+        this.scriptPruningThreshold = minorityThreshold;
+        return this;
+    }
+
+
+    /**
+     * Detects in two stages: first the group of languages, then the language within the group(s) that the
+     * text can be in. For example {@link com.optimaize.langdetect.profiles.BuiltInLanguages#getLanguageGroups()}
+     * groups the languages by script and family: Romance, Germanic, Cyrillic, CJK, ...
+     *
+     * <p>The first stage scores the groups, with the merged frequencies of their languages
+     * (see {@link NgramFrequencyData#mergeLanguages}). The second stage scores the languages of the groups
+     * with a probability of at least 0.01, the others get a probability of 0. The {@link #scriptPruning} is
+     * done in the first stage, on the groups.</p>
+     *
+     * <p>The languages that are not loaded are ignored. The loaded languages that are not in a group
+     * get a group of their own.</p>
+     *
+     * <p>With the built-in groups on all built-in languages the first stage scores 14 groups instead of
+     * 71 languages, and detection is about 2 times faster. It's an approximation: the merged frequencies
+     * are less sharp, and a text that is close to a language in another group can lose it in the first
+     * stage. On the built-in test texts the best language is the same for 346 of 348 texts with the short
+     * text algorithm.</p>
+     *
+     * <p>Defaults to null, which means one stage with all languages. That's the old behavior.</p>
+     *
+     * @param languageGroups null to turn it off.
+     * @throws IllegalArgumentException if a language is in more than one group.
+     */
+    public LanguageDetectorBuilder languageGroups(@Nullable Collection<? extends Collection<LdLocale>> languageGroups) throws IllegalArgumentException {
+        if (languageGroups == null) {
+            this.languageGroups = null;
+            return this;
+        }
+        Set<LdLocale> seen = new HashSet<>();
+        List<List<LdLocale>> copy = new ArrayList<>();
+        for (Collection<LdLocale> group : languageGroups) {
+            for (LdLocale language : group) {
+                if (!seen.add(language)) throw new IllegalArgumentException("The language "+language+" is in more than one group!");
+            }
+            copy.add(new ArrayList<>(group));
+        }
+        this.languageGroups = copy;
+        return this;
+    }
+
+
     /**
      * TODO document exactly. Also explain how it influences the results.
      * Maybe check for unsupported languages at some point, or not, but document whether it does throw or ignore.
@@ -158,6 +381,9 @@ public class LanguageDetectorBuilder {
      * @throws IllegalStateException if a profile for the same language was added already (must be a userland bug).
      */
     public LanguageDetectorBuilder withProfile(LanguageProfile languageProfile) throws IllegalStateException {
+        if (ngramFrequencyData != null || lazyLanguages != null) {
+            throw new IllegalStateException("Frequency data or lazy languages were set already, can't add profiles to it!");
+        }
         if (langsAdded.contains(languageProfile.getLocale())) {
             throw new IllegalStateException("A language profile for language "+languageProfile.getLocale()+" was added already!");
         }
@@ -182,18 +408,170 @@ public class LanguageDetectorBuilder {
 
 
     /**
-     * @throws IllegalStateException if no LanguageProfile was {@link #withProfile added}.
+     * Uses n-gram frequencies that were computed already, instead of language profiles. For example as
+     * loaded by the {@link NgramFrequencyDataReader}.
+     *
+     * <p>Detectors for different sets of languages can share one data for all of them, see
+     * {@link NgramFrequencyData#forLanguages}:
+     * {@code withFrequencyData(allLanguages.forLanguages(customerLanguages))}</p>
+     *
+     * @throws IllegalStateException if profiles or frequency data were added already.
+     * @throws IllegalArgumentException if the data does not have the n-gram lengths of the NgramExtractor.
+     */
+    public LanguageDetectorBuilder withFrequencyData(@NotNull NgramFrequencyData ngramFrequencyData) throws IllegalStateException, IllegalArgumentException {
+        if (!languageProfiles.isEmpty() || this.ngramFrequencyData != null || lazyLanguages != null) {
+            throw new IllegalStateException("Language profiles, frequency data or lazy languages were added already!");
+        }
+        for (Integer gramLength : ngramExtractor.getGramLengths()) {
+            if (!ngramFrequencyData.getGramLengths().contains(gramLength)) {
+                throw new IllegalArgumentException("The NgramExtractor is set to handle "+gramLength+"-grams but the given frequency data does not support this!");
+            }
+        }
+        this.ngramFrequencyData = ngramFrequencyData;
+        return this;
+    }
+
+
+    /**
+     * Uses built-in language profiles that are only loaded when the detector is used the first time, in the
+     * background. Until they are loaded, calls to the detector wait (see {@link #lazyLoadingTimeout}) or use
+     * a smaller set of languages (see {@link #lazyFirstLanguages}).
+     *
+     * <p>Good for short-lived processes that may not need the detector at all, or that can live with
+     * fewer languages for the first texts.</p>
+     *
+     * <p>A call to the detector that is interrupted while waiting for the languages gets no result (absent,
+     * or an empty list), with the interrupt flag of the thread set again.</p>
+     *
+     * @param languages for example {@link com.optimaize.langdetect.profiles.BuiltInLanguages#getLanguages()}
+     * @throws IllegalStateException if profiles or frequency data were added already.
+     */
+    public LanguageDetectorBuilder withLazyBuiltInLanguages(@NotNull Collection<LdLocale> languages) throws IllegalStateException {
+        if (languages.isEmpty()) throw new IllegalArgumentException("No languages provided!");
+        if (!languageProfiles.isEmpty() || ngramFrequencyData != null || lazyLanguages != null) {
+            throw new IllegalStateException("Language profiles, frequency data or lazy languages were added already!");
+        }
+        this.lazyLanguages = new ArrayList<>(languages);
+        return this;
+    }
+
+    /**
+     * For {@link #withLazyBuiltInLanguages}: a few languages that are used when all languages are not loaded
+     * within the {@link #lazyLoadingTimeout timeout}. They are loaded in the calling thread when first needed,
+     * so keep the list short, for example the most common languages of your texts.
+     *
+     * <p>Defaults to none, which means calls get no result when the timeout passes.</p>
+     */
+    public LanguageDetectorBuilder lazyFirstLanguages(@Nullable Collection<LdLocale> languages) {
+        this.lazyFirstLanguages = (languages==null || languages.isEmpty()) ? null : new ArrayList<>(languages);
+        return this;
+    }
+
+    /**
+     * For {@link #withLazyBuiltInLanguages}: how long a call to the detector waits for all languages to be loaded.
+     *
+     * <p>Defaults to no limit.</p>
+     */
+    public LanguageDetectorBuilder lazyLoadingTimeout(long timeout, @NotNull TimeUnit unit) {
+        if (timeout<0) throw new IllegalArgumentException("timeout must be >= 0, but was: "+timeout);
+        this.lazyTimeoutNanos = unit.toNanos(timeout);
+        return this;
+    }
+
+    /**
+     * For {@link #withLazyBuiltInLanguages}: where all languages are loaded.
+     *
+     * <p>Defaults to a new daemon thread. If the executor rejects the task, for example because it was shut
+     * down, the first call to the detector loads the languages in its own thread.</p>
+     */
+    public LanguageDetectorBuilder lazyLoadingExecutor(@Nullable Executor executor) {
+        this.lazyExecutor = executor;
+        return this;
+    }
+
+
+    /**
+     * @throws IllegalStateException if no LanguageProfile was {@link #withProfile added}, and no
+     *         {@link #withFrequencyData frequency data} or {@link #withLazyBuiltInLanguages lazy languages} were set.
      */
     public LanguageDetector build() throws IllegalStateException {
-        if (languageProfiles.isEmpty()) throw new IllegalStateException();
+        return buildBatch();
+    }
+
+    /**
+     * Same as {@link #build()}, typed for the methods that reuse scratch buffers and detect many texts at once.
+     * @throws IllegalStateException if no LanguageProfile was {@link #withProfile added}, and no
+     *         {@link #withFrequencyData frequency data} or {@link #withLazyBuiltInLanguages lazy languages} were set.
+     */
+    public BatchLanguageDetector buildBatch() throws IllegalStateException {
+        if (lazyLanguages != null) {
+            return buildLazy();
+        }
+        if (languageProfiles.isEmpty() && ngramFrequencyData == null) throw new IllegalStateException();
+        return build(ngramFrequencyData != null ? ngramFrequencyData : NgramFrequencyData.create(languageProfiles, ngramExtractor.getGramLengths()));
+    }
+
+    @NotNull
+    private BatchLanguageDetector build(@NotNull NgramFrequencyData ngramFrequencyData) {
         return new LanguageDetectorImpl(
-                NgramFrequencyData.create(languageProfiles, ngramExtractor.getGramLengths()),
+                ngramFrequencyData.withStorage(probabilityPrecision, sparseGramLanguages),
                 alpha, seed, shortTextAlgorithm,
                 prefixFactor, suffixFactor,
                 probabilityThreshold, minimalConfidence,
                 langWeightingMap,
-                ngramExtractor
+                ngramExtractor,
+                logScoring,
+                exhaustiveLongText, maxDistinctGrams,
+                earlyAccept,
+                scriptPruningThreshold,
+                languageGroups
+        );
+    }
+
+    @NotNull
+    private BatchLanguageDetector buildLazy() {
+        assert lazyLanguages != null;
+        //the settings as they are now, this builder may be changed later.
+        LanguageDetectorBuilder settings = copySettings();
+        return new LazyLanguageDetector(
+                loader(settings, lazyLanguages),
+                lazyFirstLanguages==null ? null : loader(settings, lazyFirstLanguages),
+                lazyTimeoutNanos,
+                lazyExecutor != null ? lazyExecutor : DAEMON_THREAD_EXECUTOR
         );
     }
 
+    @NotNull
+    private static Callable<BatchLanguageDetector> loader(@NotNull final LanguageDetectorBuilder settings, @NotNull final List<LdLocale> languages) {
+        return new Callable<BatchLanguageDetector>() {
+            @Override
+            public BatchLanguageDetector call() throws Exception {
+                List<LanguageProfile> profiles = new LanguageProfileReader().readBuiltIn(languages);
+                return settings.build(NgramFrequencyData.create(profiles, settings.ngramExtractor.getGramLengths()));
+            }
+        };
+    }
+
+    @NotNull
+    private LanguageDetectorBuilder copySettings() {
+        LanguageDetectorBuilder copy = new LanguageDetectorBuilder(ngramExtractor);
+        copy.alpha = alpha;
+        copy.seed = seed;
+        copy.shortTextAlgorithm = shortTextAlgorithm;
+        copy.prefixFactor = prefixFactor;
+        copy.suffixFactor = suffixFactor;
+        copy.probabilityThreshold = probabilityThreshold;
+        copy.minimalConfidence = minimalConfidence;
+        copy.logScoring = logScoring;
+        copy.exhaustiveLongText = exhaustiveLongText;
+        copy.maxDistinctGrams = maxDistinctGrams;
+        copy.earlyAccept = earlyAccept;
+        copy.probabilityPrecision = probabilityPrecision;
+        copy.sparseGramLanguages = sparseGramLanguages;
+        copy.scriptPruningThreshold = scriptPruningThreshold;
+        copy.languageGroups = languageGroups;
+        copy.langWeightingMap = (langWeightingMap==null) ? null : new HashMap<>(langWeightingMap);
+        return copy;
+    }
+
 }
@@ -26,6 +26,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  *
@@ -36,7 +37,7 @@ import java.util.*;
  * @author Fabian Kessler
  * @author Elmer Garduno
  */
-public final class LanguageDetectorImpl implements LanguageDetector {
+public final class LanguageDetectorImpl implements BatchLanguageDetector {
     private static final Logger logger = LoggerFactory.getLogger(LanguageDetectorImpl.class);
 
     /**
@@ -44,6 +45,12 @@ public final class LanguageDetectorImpl implements LanguageDetector {
      */
     private static final double ALPHA_WIDTH = 0.05;
 
+    /**
+     * The random alpha of a trial that may give up is at most this many ALPHA_WIDTHs from the alpha, see
+     * {@link #trialAlpha}.
+     */
+    private static final double MAX_ALPHA_DEVIATION = 13;
+
     /**
      * TODO document what this is for, and why that value is chosen.
      */
@@ -64,6 +71,11 @@ public final class LanguageDetectorImpl implements LanguageDetector {
      */
     private static final int N_TRIAL = 7;
 
+    /**
+     * With the earlyAccept, at least so many trials must agree on the best language.
+     */
+    private static final int EARLY_ACCEPT_TRIALS = 3;
+
     /**
      * This is used when no custom seed was passed in.
      * By using the same seed for different calls, the results are consistent also.
@@ -74,6 +86,27 @@ public final class LanguageDetectorImpl implements LanguageDetector {
      */
     private static final long DEFAULT_SEED = 41L;
 
+    /**
+     * In log scoring, how often the long text algorithm checks whether it has converged. Same as in the
+     * linear scoring where it's the normalization interval.
+     */
+    private static final int LOG_CONVERGENCE_CHECK_INTERVAL = 5;
+
+    /**
+     * In log scoring: the best language can only have CONV_THRESHOLD if it leads the second one by this much.
+     */
+    private static final double LOG_CONVERGENCE_ODDS = Math.log(CONV_THRESHOLD / (1 - CONV_THRESHOLD));
+
+    /**
+     * Runs the per-n-gram loops over all languages, with SIMD if available.
+     */
+    private static final ProbabilityKernel KERNEL = ProbabilityKernel.getInstance();
+
+    /**
+     * How many texts of a batch are handed to the executor as one task.
+     */
+    private static final int BATCH_CHUNK_SIZE = 32;
+
     private static final Comparator<DetectedLanguage> PROBABILITY_SORTING_COMPARATOR = new Comparator<DetectedLanguage>() {
         public int compare(DetectedLanguage a, DetectedLanguage b) {
             return Double.compare(b.getProbability(), a.getProbability());
@@ -100,6 +133,63 @@ public final class LanguageDetectorImpl implements LanguageDetector {
 
     private final NgramExtractor ngramExtractor;
 
+    private final boolean logScoring;
+    private final boolean exhaustiveLongText;
+    private final int maxDistinctGrams;
+    /**
+     * See {@link LanguageDetectorBuilder#earlyAccept}.
+     */
+    private final boolean earlyAccept;
+
+    /**
+     * Only set in log scoring, or for the exhaustive long text algorithm.
+     * One row per n-gram with a value per language, the values are
+     * {@code log(1 + p/weight)} where weight is the alpha weight of that n-gram (including the affix factor).
+     *
+     * <p>The linear algorithm multiplies by {@code (weight + p)}. Its logarithm is
+     * {@code log(weight) + log(1 + p/weight)}. The first part is the same for all languages of an n-gram, and
+     * disappears in the normalization, so it's left out. This way languages that don't know the n-gram have a
+     * 0 here, just like in the probability matrix.</p>
+     */
+    @Nullable
+    private final double[] logMatrix;
+
+    /**
+     * In log scoring: when the best language leads the second one by this much then its probability is
+     * at least CONV_THRESHOLD.
+     */
+    private final double logConvergenceGap;
+
+    /**
+     * Key = gram index in ngramFrequencyData, value = whether the prefixFactor or suffixFactor applies to it.
+     * Null when both factors are 1.0 (not used).
+     */
+    @Nullable
+    private final byte[] gramAffixes;
+    private static final byte AFFIX_PREFIX = 1;
+    private static final byte AFFIX_SUFFIX = 2;
+
+    /**
+     * The most that one trial of {@link #detectBlockLongText} can add up to, before dividing by N_TRIAL.
+     * A trial ends normalized to 1, unless it ran into the ITERATION_LIMIT: then the updates since the last
+     * normalization are on top. Used by {@link #detect(CharSequence)} to give up early, see
+     * {@link #cannotReachMinimalConfidence}.
+     */
+    private final double maxLinearTrialSum;
+
+    /**
+     * Null unless the {@link LanguageDetectorBuilder#scriptPruning script pruning} is on, and there are no
+     * languageGroups (then their detector does it).
+     */
+    @Nullable
+    private final ScriptIndex scriptIndex;
+
+    /**
+     * Null unless the {@link LanguageDetectorBuilder#languageGroups two-stage detection} is on.
+     */
+    @Nullable
+    private final LanguageGroups languageGroups;
+
 
     /**
      * Use the {@link LanguageDetectorBuilder}.
@@ -110,12 +200,19 @@ public final class LanguageDetectorImpl implements LanguageDetector {
                          double probabilityThreshold,
                          double minimalConfidence,
                          @Nullable Map<LdLocale, Double> langWeightingMap,
-                         @NotNull NgramExtractor ngramExtractor) {
+                         @NotNull NgramExtractor ngramExtractor,
+                         boolean logScoring,
+                         boolean exhaustiveLongText, int maxDistinctGrams,
+                         boolean earlyAccept,
+                         double scriptPruningThreshold,
+                         @Nullable Collection<? extends Collection<LdLocale>> groups) {
         if (alpha<0d || alpha >1d) throw new IllegalArgumentException("alpha must be between 0 and 1, but was: "+alpha);
         if (prefixFactor <0d || prefixFactor >10d) throw new IllegalArgumentException("prefixFactor must be between 0 and 10, but was: "+prefixFactor);
         if (suffixFactor <0d || suffixFactor >10d) throw new IllegalArgumentException("suffixFactor must be between 0 and 10, but was: "+suffixFactor);
         if (probabilityThreshold<0d || probabilityThreshold>1d) throw new IllegalArgumentException("probabilityThreshold must be between 0 and 1, but was: "+probabilityThreshold);
         if (minimalConfidence<0d || minimalConfidence>1d) throw new IllegalArgumentException("minimalConfidence must be between 0 and 1, but was: "+minimalConfidence);
+        if (maxDistinctGrams<0) throw new IllegalArgumentException("maxDistinctGrams must be >= 0, but was: "+maxDistinctGrams);
+        if (scriptPruningThreshold>1d) throw new IllegalArgumentException("scriptPruningThreshold must be <= 1, but was: "+scriptPruningThreshold);
         if (langWeightingMap!=null && langWeightingMap.isEmpty()) langWeightingMap = null;
 
         this.ngramFrequencyData = ngramFrequencyData;
@@ -128,27 +225,113 @@ public final class LanguageDetectorImpl implements LanguageDetector {
         this.minimalConfidence = minimalConfidence;
         this.priorMap = (langWeightingMap==null) ? null : Util.makeInternalPrioMap(langWeightingMap, ngramFrequencyData.getLanguageList());
         this.ngramExtractor = ngramExtractor;
+        this.gramAffixes = (prefixFactor==1.0 && suffixFactor==1.0) ? null : makeGramAffixes(ngramFrequencyData, prefixFactor, suffixFactor);
+        this.logScoring = logScoring;
+        this.exhaustiveLongText = exhaustiveLongText;
+        this.maxDistinctGrams = maxDistinctGrams;
+        this.earlyAccept = earlyAccept;
+        this.logMatrix = (logScoring || exhaustiveLongText) ? makeLogMatrix() : null;
+        this.maxLinearTrialSum = (logScoring || exhaustiveLongText) ? 1d : computeMaxLinearTrialSum();
+        int[][] groupIndexes = (groups == null) ? null : LanguageGroups.groupIndexes(ngramFrequencyData, groups);
+        if (groupIndexes == null) {
+            this.languageGroups = null;
+            this.scriptIndex = (scriptPruningThreshold < 0d) ? null : new ScriptIndex(ngramFrequencyData, scriptPruningThreshold);
+        } else {
+            //the groups have scripts too, the group detector prunes them.
+            LanguageDetectorImpl groupDetector = new LanguageDetectorImpl(
+                    ngramFrequencyData.mergeLanguages(groupIndexes),
+                    alpha, seed, shortTextAlgorithm,
+                    prefixFactor, suffixFactor,
+                    probabilityThreshold, minimalConfidence,
+                    null,
+                    ngramExtractor,
+                    logScoring,
+                    exhaustiveLongText, maxDistinctGrams,
+                    false,
+                    scriptPruningThreshold,
+                    null);
+            this.languageGroups = new LanguageGroups(ngramFrequencyData, groupIndexes, groupDetector);
+            this.scriptIndex = null;
+        }
+        int numLanguages = ngramFrequencyData.getLanguageList().size();
+        //the others together have at most (numLanguages-1) * e^-gap, solved for the best having CONV_THRESHOLD:
+        this.logConvergenceGap = Math.log((numLanguages - 1) * CONV_THRESHOLD / (1 - CONV_THRESHOLD));
+    }
+
+    private double[] makeLogMatrix() {
+        int numLanguages = ngramFrequencyData.getLanguageList().size();
+        double[] logMatrix = new double[ngramFrequencyData.getNumGrams() * numLanguages];
+        for (int gramIndex=0; gramIndex<ngramFrequencyData.getNumGrams(); gramIndex++) {
+            double weight = gramWeight(gramIndex, alpha);
+            int offset = gramIndex * numLanguages;
+            for (int i=0; i<numLanguages; i++) {
+                double p = ngramFrequencyData.getProbability(gramIndex, i);
+                if (p != 0d) {
+                    logMatrix[offset + i] = Math.log1p(p / weight);
+                }
+            }
+        }
+        return logMatrix;
+    }
+
+    private double computeMaxLinearTrialSum() {
+        double maxProbability = ngramFrequencyData.getMaxProbability();
+        //trialAlpha() never exceeds this alpha when the trials may give up:
+        double maxWeight = (alpha + MAX_ALPHA_DEVIATION * ALPHA_WIDTH) / BASE_FREQ * Math.max(1d, Math.max(prefixFactor, suffixFactor));
+        double maxFactor = maxProbability + maxWeight;
+        if (maxFactor <= 1d) return 1d;
+        //the updates after the last normalization at i % 5 == 0:
+        return Math.pow(maxFactor, (ITERATION_LIMIT - 1) % 5);
     }
 
+    private static byte[] makeGramAffixes(NgramFrequencyData ngramFrequencyData, double prefixFactor, double suffixFactor) {
+        byte[] affixes = new byte[ngramFrequencyData.getNumGrams()];
+        for (int gramIndex=0; gramIndex<affixes.length; gramIndex++) {
+            String ngram = ngramFrequencyData.getGram(gramIndex);
+            if (ngram.length() >1) {
+                if (prefixFactor !=1.0 && ngram.charAt(0)==' ') {
+                    affixes[gramIndex] = AFFIX_PREFIX;
+                } else if (suffixFactor!=1.0 && ngram.charAt(ngram.length()-1)==' ') {
+                    affixes[gramIndex] = AFFIX_SUFFIX;
+                }
+            }
+        }
+        return affixes;
+    }
 
+
+    /**
+     * Gives the same answer as taking the best of {@link #getProbabilities}, but only looks for the best
+     * language instead of building and sorting the list. And in the long text algorithms it stops with the
+     * trials once no language can make it to the minimalConfidence anymore, as for text that is mixed or
+     * in an unknown language.
+     *
+     * <p>With the {@link LanguageDetectorBuilder#earlyAccept early accept} it also stops once the first trials
+     * agree on a language with the minimalConfidence. Then the answer can differ from getProbabilities().</p>
+     */
     @Override
     public Optional<LdLocale> detect(CharSequence text) {
-        List<DetectedLanguage> probabilities = getProbabilities(text);
-        if (probabilities.isEmpty()) {
-            return Optional.absent();
-        } else {
-            DetectedLanguage best = probabilities.get(0);
-            if (best.getProbability() >= minimalConfidence) {
-                return Optional.of(best.getLocale());
-            } else {
-                return Optional.absent();
+        double[] langprob = detectBlock(text, new DetectionContext(ngramFrequencyData), true);
+        if (langprob==null) return Optional.absent();
+        int best = -1;
+        double bestProbability = probabilityThreshold;
+        for (int j=0; j<langprob.length; j++) {
+            //like the stable sort in sortProbability, the first one wins a tie
+            if (langprob[j] > bestProbability || (best == -1 && langprob[j] == bestProbability)) {
+                best = j;
+                bestProbability = langprob[j];
             }
         }
+        if (best != -1 && bestProbability >= minimalConfidence) {
+            return Optional.of(ngramFrequencyData.getLanguage(best));
+        } else {
+            return Optional.absent();
+        }
     }
 
     @Override
     public List<DetectedLanguage> getProbabilities(CharSequence text) {
-        double[] langprob = detectBlock(text);
+        double[] langprob = detectBlock(text, new DetectionContext(ngramFrequencyData));
         if (langprob==null) {
             return Collections.emptyList();
         } else {
@@ -156,34 +339,165 @@ public final class LanguageDetectorImpl implements LanguageDetector {
         }
     }
 
+    @Override
+    public void detect(CharSequence text, DetectionContext context, DetectionResult result) {
+        context.bind(ngramFrequencyData);
+        double[] langprob = detectBlock(text, context);
+        if (langprob==null) {
+            result.clear();
+        } else {
+            int numLanguages = sortProbability(langprob, context.order);
+            result.set(ngramFrequencyData.getLanguageList(), minimalConfidence, langprob, context.order, numLanguages);
+        }
+    }
+
+    @Override
+    public int detectTop(CharSequence text, DetectionContext context, int[] languageIndexes, double[] probabilities) {
+        if (probabilities.length < languageIndexes.length) {
+            throw new IllegalArgumentException("probabilities must be at least as long as languageIndexes, but was: "+probabilities.length+" < "+languageIndexes.length);
+        }
+        context.bind(ngramFrequencyData);
+        double[] langprob = detectBlock(text, context);
+        if (langprob==null) return 0;
+        return selectTop(langprob, languageIndexes, probabilities);
+    }
+
+    @Override
+    public BatchDetectionResult detectAll(List<? extends CharSequence> texts) {
+        BatchDetectionResult.Builder builder = newBatchBuilder();
+        detectAll(texts, new DetectionContext(ngramFrequencyData), builder);
+        return builder.build();
+    }
+
+    @Override
+    public BatchDetectionResult detectAll(List<? extends CharSequence> texts, ExecutorService executor) throws InterruptedException {
+        List<Callable<BatchDetectionResult.Builder>> chunks = new ArrayList<>();
+        for (int from=0; from<texts.size(); from+=BATCH_CHUNK_SIZE) {
+            final List<? extends CharSequence> chunk = texts.subList(from, Math.min(from + BATCH_CHUNK_SIZE, texts.size()));
+            chunks.add(new Callable<BatchDetectionResult.Builder>() {
+                @Override
+                public BatchDetectionResult.Builder call() {
+                    BatchDetectionResult.Builder builder = newBatchBuilder();
+                    detectAll(chunk, new DetectionContext(ngramFrequencyData), builder);
+                    return builder;
+                }
+            });
+        }
+        BatchDetectionResult.Builder builder = newBatchBuilder();
+        for (Future<BatchDetectionResult.Builder> future : executor.invokeAll(chunks)) {
+            try {
+                builder.addAll(future.get());
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                if (cause instanceof Error) throw (Error) cause;
+                throw new IllegalStateException(cause);
+            }
+        }
+        return builder.build();
+    }
+
+    private BatchDetectionResult.Builder newBatchBuilder() {
+        return new BatchDetectionResult.Builder(ngramFrequencyData.getLanguageList(), minimalConfidence);
+    }
+
+    private void detectAll(List<? extends CharSequence> texts, DetectionContext context, BatchDetectionResult.Builder builder) {
+        for (CharSequence text : texts) {
+            double[] langprob = detectBlock(text, context);
+            int numLanguages = (langprob==null) ? 0 : sortProbability(langprob, context.order);
+            builder.add(langprob, context.order, numLanguages);
+        }
+    }
+
+
+    /**
+     * @return null if there are no "features" in the text (just noise).
+     */
+    @Nullable
+    private double[] detectBlock(CharSequence text, DetectionContext context) {
+        return detectBlock(text, context, false);
+    }
 
     /**
+     * @param mayGiveUp true to stop with the trials once no language can reach the minimalConfidence anymore.
+     *                  The probabilities are incomplete then, only good for saying that there is no such
+     *                  language: the best one stays below the minimalConfidence.
      * @return null if there are no "features" in the text (just noise).
      */
     @Nullable
-    private double[] detectBlock(CharSequence text) {
+    private double[] detectBlock(CharSequence text, DetectionContext context, boolean mayGiveUp) {
+        TextNgrams ngrams = context.ngrams;
+        if (text.length() <= shortTextAlgorithm) {
+            ngrams.collectCounted(text, ngramExtractor);
+        } else if (exhaustiveLongText) {
+            ngrams.collectCounted(text, ngramExtractor, maxDistinctGrams);
+        } else {
+            ngrams.collect(text, ngramExtractor);
+        }
+        if (ngrams.isEmpty()) return null;
+        return detectBlock(text, ngrams, context, mayGiveUp);
+    }
+
+    /**
+     * Scores the collected n-grams. Also used by the {@link LanguageGroups} with the n-grams that the detector
+     * of all languages collected, for the detector of the groups.
+     * @param ngrams not empty.
+     * @return {@code context.langprob(number of languages)}
+     */
+    double[] detectBlock(CharSequence text, TextNgrams ngrams, DetectionContext context, boolean mayGiveUp) {
+        LanguageCandidates candidates;
+        if (languageGroups != null) {
+            candidates = languageGroups.candidates(text, ngrams, context);
+        } else if (scriptIndex != null) {
+            candidates = scriptIndex.candidates(text, context.scriptCounts());
+        } else {
+            candidates = null;
+        }
+        double[] langprob = detectBlockOfCandidates(text, ngrams, candidates, context, mayGiveUp);
+        if (candidates == null) return langprob;
+        //the languages that were left out get nothing:
+        double[] all = context.langprob(ngramFrequencyData.getLanguageList().size());
+        Arrays.fill(all, 0d);
+        for (int i=0; i<candidates.languages.length; i++) {
+            all[candidates.languages[i]] = langprob[i];
+        }
+        return all;
+    }
+
+    /**
+     * @param candidates the languages to score, null for all.
+     * @return the probabilities of the candidates.
+     */
+    private double[] detectBlockOfCandidates(CharSequence text, TextNgrams ngrams, @Nullable LanguageCandidates candidates,
+                                             DetectionContext context, boolean mayGiveUp) {
         if (text.length() <= shortTextAlgorithm) {
-            Map<String, Integer> ngrams = ngramExtractor.extractCountedGrams(text);
-            if (ngrams.isEmpty()) return null;
-            return detectBlockShortText(ngrams);
+            return logScoring ? detectBlockShortTextLog(ngrams, candidates, context) : detectBlockShortText(ngrams, candidates, context);
+        } else if (exhaustiveLongText) {
+            return detectBlockLongTextExhaustive(ngrams, candidates, context);
         } else {
-            List<String> strings = ngramExtractor.extractGrams(text);
-            if (strings.isEmpty()) return null;
-            return detectBlockLongText(strings);
+            return logScoring ? detectBlockLongTextLog(ngrams, candidates, context, mayGiveUp) : detectBlockLongText(ngrams, candidates, context, mayGiveUp);
         }
     }
 
+    /**
+     * @return the data to score the candidates with: a view with their languages, in the same order.
+     */
+    private NgramFrequencyData data(@Nullable LanguageCandidates candidates) {
+        return (candidates == null) ? ngramFrequencyData : candidates.data;
+    }
+
     /**
      */
-    private double[] detectBlockShortText(Map<String, Integer> ngrams) {
-        double[] prob = initProbability();
+    private double[] detectBlockShortText(TextNgrams ngrams, @Nullable LanguageCandidates candidates, DetectionContext context) {
+        NgramFrequencyData data = data(candidates);
+        double[] prob = initProbability(context.langprob(data.getLanguageList().size()), candidates);
         double alpha = this.alpha; //TODO I don't understand what this does.
-        for (Map.Entry<String, Integer> gramWithCount : ngrams.entrySet()) {
-            updateLangProb(prob, gramWithCount.getKey(), gramWithCount.getValue(), alpha);
-            if (Util.normalizeProb(prob) > CONV_THRESHOLD) break; //this break ensures that we quit the loop before all probabilities reach 0
+        for (int i=0; i<ngrams.size(); i++) {
+            updateLangProb(data, prob, ngrams.gramIndex(i), ngrams.count(i), alpha); //the deferred factor disappears in the normalization
+            if (KERNEL.normalize(prob) > CONV_THRESHOLD) break; //this break ensures that we quit the loop before all probabilities reach 0
         }
-        Util.normalizeProb(prob);
-        if (logger.isDebugEnabled()) logger.debug("==> " + sortProbability(prob));
+        KERNEL.normalize(prob);
+        if (logger.isDebugEnabled()) logger.debug("==> " + sortProbability(prob, data));
         return prob;
     }
 
@@ -191,36 +505,203 @@ public final class LanguageDetectorImpl implements LanguageDetector {
      * This is the original algorithm used for all text length.
      * It is inappropriate for short text.
      */
-    private double[] detectBlockLongText(List<String> ngrams) {
+    private double[] detectBlockLongText(TextNgrams ngrams, @Nullable LanguageCandidates candidates,
+                                         DetectionContext context, boolean mayGiveUp) {
         assert !ngrams.isEmpty();
-        double[] langprob = new double[ngramFrequencyData.getLanguageList().size()];
-        Random rand = new Random(seed.or(DEFAULT_SEED));
+        NgramFrequencyData data = data(candidates);
+        int numLanguages = data.getLanguageList().size();
+        double[] langprob = context.langprob(numLanguages);
+        Arrays.fill(langprob, 0d);
+        Random rand = context.random;
+        rand.setSeed(seed.or(DEFAULT_SEED));
+        int leader = -1;
         for (int t = 0; t < N_TRIAL; ++t) {
-            double[] prob = initProbability();
-            double alpha = this.alpha + (rand.nextGaussian() * ALPHA_WIDTH);
+            double[] prob = initProbability(context.prob(numLanguages), candidates);
+            double alpha = trialAlpha(rand, mayGiveUp);
+            //the factor of the sparse n-grams that all languages still have to be multiplied with:
+            double deferred = 1d;
 
             for (int i=0; i<ITERATION_LIMIT; i++) {
                 int r = rand.nextInt(ngrams.size());
-                updateLangProb(prob, ngrams.get(r), 1, alpha);
+                deferred *= updateLangProb(data, prob, ngrams.gramIndex(r), 1, alpha);
                 if (i % 5 == 0) {
-                    if (Util.normalizeProb(prob) > CONV_THRESHOLD) break; //this break ensures that we quit the loop before all probabilities reach 0
-                    if (logger.isTraceEnabled()) logger.trace("> " + sortProbability(prob));
+                    deferred = 1d; //disappears in the normalization
+                    if (KERNEL.normalize(prob) > CONV_THRESHOLD) break; //this break ensures that we quit the loop before all probabilities reach 0
+                    if (logger.isTraceEnabled()) logger.trace("> " + sortProbability(prob, data));
                 }
             }
+            if (deferred != 1d) {
+                for (int j=0; j<prob.length; j++) prob[j] *= deferred;
+            }
             for(int j=0;j<langprob.length;++j) langprob[j] += prob[j] / N_TRIAL;
-            if (logger.isDebugEnabled()) logger.debug("==> " + sortProbability(prob));
+            if (logger.isDebugEnabled()) logger.debug("==> " + sortProbability(prob, data));
+            if (mayGiveUp && cannotReachMinimalConfidence(langprob, N_TRIAL - t - 1, maxLinearTrialSum)) break;
+            if (mayGiveUp && earlyAccept) {
+                leader = trialLeader(leader, t, prob);
+                if (acceptedEarly(langprob, t + 1, leader)) break;
+            }
         }
         return langprob;
     }
 
+    /**
+     * The alpha varied by a Gaussian.
+     *
+     * <p>Only when the trials may give up early, the deviation is clamped to MAX_ALPHA_DEVIATION, the bound
+     * that {@link #maxLinearTrialSum} assumes. {@link #getProbabilities} and the others use the plain
+     * Gaussian. The clamp is not expected to make detect() differ from them: the polar method that
+     * {@link Random#nextGaussian()} is specified with returns at most sqrt(-2 ln s) in magnitude, where s is
+     * at least 2^-104 (the smallest nonzero square of a {@link Random#nextDouble()} mapped to -1..1).
+     * That's 12.01.</p>
+     */
+    private double trialAlpha(Random rand, boolean mayGiveUp) {
+        double deviation = rand.nextGaussian();
+        if (mayGiveUp) deviation = Math.max(-MAX_ALPHA_DEVIATION, Math.min(MAX_ALPHA_DEVIATION, deviation));
+        return alpha + deviation * ALPHA_WIDTH;
+    }
+
+    /**
+     * Same as {@link #detectBlockShortText} in log scoring.
+     * All n-grams are used, there is no need to stop early to prevent an underflow.
+     */
+    private double[] detectBlockShortTextLog(TextNgrams ngrams, @Nullable LanguageCandidates candidates, DetectionContext context) {
+        assert logMatrix != null;
+        NgramFrequencyData data = data(candidates);
+        double[] score = initLogProbability(context.langprob(data.getLanguageList().size()), candidates);
+        for (int i=0; i<ngrams.size(); i++) {
+            addLogProb(score, ngrams.gramIndex(i), ngrams.count(i), candidates);
+        }
+        Util.normalizeLogProb(score);
+        if (logger.isDebugEnabled()) logger.debug("==> " + sortProbability(score, data));
+        return score;
+    }
+
+    /**
+     * Same as {@link #detectBlockLongText} in log scoring.
+     *
+     * <p>The alpha is not varied between the trials, the log table is made for one alpha. The trials differ
+     * in the n-grams that are drawn.</p>
+     */
+    private double[] detectBlockLongTextLog(TextNgrams ngrams, @Nullable LanguageCandidates candidates,
+                                            DetectionContext context, boolean mayGiveUp) {
+        assert !ngrams.isEmpty();
+        NgramFrequencyData data = data(candidates);
+        int numLanguages = data.getLanguageList().size();
+        double[] langprob = context.langprob(numLanguages);
+        Arrays.fill(langprob, 0d);
+        Random rand = context.random;
+        rand.setSeed(seed.or(DEFAULT_SEED));
+        int leader = -1;
+        for (int t = 0; t < N_TRIAL; ++t) {
+            double[] score = initLogProbability(context.prob(numLanguages), candidates);
+            for (int i=0; i<ITERATION_LIMIT; i++) {
+                int r = rand.nextInt(ngrams.size());
+                addLogProb(score, ngrams.gramIndex(r), 1, candidates);
+                if (i % LOG_CONVERGENCE_CHECK_INTERVAL == 0 && hasConverged(score)) break;
+            }
+            Util.normalizeLogProb(score);
+            for(int j=0;j<langprob.length;++j) langprob[j] += score[j] / N_TRIAL;
+            if (logger.isDebugEnabled()) logger.debug("==> " + sortProbability(score, data));
+            if (mayGiveUp && cannotReachMinimalConfidence(langprob, N_TRIAL - t - 1, 1d)) break;
+            if (mayGiveUp && earlyAccept) {
+                leader = trialLeader(leader, t, score);
+                if (acceptedEarly(langprob, t + 1, leader)) break;
+            }
+        }
+        return langprob;
+    }
+
+    /**
+     * Each remaining trial adds at most maxTrialSum / N_TRIAL to a language. If even that is not enough for
+     * any language then the result is known: there is no language with the minimalConfidence.
+     * The tolerance covers the rounding in the sums.
+     */
+    private boolean cannotReachMinimalConfidence(double[] langprob, int remainingTrials, double maxTrialSum) {
+        double needed = minimalConfidence - remainingTrials * maxTrialSum / N_TRIAL - 1e-9;
+        for (double p : langprob) {
+            if (p >= needed) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param leader the best language of the trials before, -1 if they did not agree.
+     * @param prob the probabilities of trial t.
+     * @return the best language of the trials up to t, -1 if they did not agree.
+     */
+    private static int trialLeader(int leader, int t, double[] prob) {
+        if (t > 0 && leader == -1) return -1;
+        int best = 0;
+        for (int j=1; j<prob.length; j++) {
+            if (prob[j] > prob[best]) best = j;
+        }
+        return (t == 0 || best == leader) ? best : -1;
+    }
+
+    /**
+     * For the earlyAccept: when the trials so far agree on the leader, and their mean gives it the
+     * minimalConfidence, langprob is scaled to that mean.
+     * @return true if accepted, there is no need for the other trials.
+     */
+    private boolean acceptedEarly(double[] langprob, int trials, int leader) {
+        if (leader == -1 || trials < EARLY_ACCEPT_TRIALS || trials == N_TRIAL) return false;
+        double scale = (double) N_TRIAL / trials;
+        if (langprob[leader] * scale < minimalConfidence) return false;
+        for (int j=0; j<langprob.length; j++) langprob[j] *= scale;
+        return true;
+    }
+
+    /**
+     * Deterministic alternative to the sampling in {@link #detectBlockLongText}: every distinct n-gram is
+     * scored once, weighted by how often it occurs. Always in log scoring, the multiplicities would
+     * underflow the linear probabilities.
+     */
+    private double[] detectBlockLongTextExhaustive(TextNgrams ngrams, @Nullable LanguageCandidates candidates, DetectionContext context) {
+        assert logMatrix != null;
+        NgramFrequencyData data = data(candidates);
+        double[] score = initLogProbability(context.langprob(data.getLanguageList().size()), candidates);
+        for (int i=0; i<ngrams.size(); i++) {
+            addLogProb(score, ngrams.gramIndex(i), ngrams.count(i), candidates);
+        }
+        Util.normalizeLogProb(score);
+        if (logger.isDebugEnabled()) logger.debug("==> " + sortProbability(score, data));
+        return score;
+    }
+
+    /**
+     * Tells whether the best language is above CONV_THRESHOLD, without normalizing.
+     * Same criterion as in the linear algorithm, but mostly decided by the gap to the second best language.
+     */
+    private boolean hasConverged(double[] score) {
+        double best = Double.NEGATIVE_INFINITY;
+        double second = Double.NEGATIVE_INFINITY;
+        for (double s : score) {
+            if (s > best) {
+                second = best;
+                best = s;
+            } else if (s > second) {
+                second = s;
+            }
+        }
+        double gap = best - second;
+        if (gap >= logConvergenceGap) return true; //even if all others were as close as the second one
+        if (gap < LOG_CONVERGENCE_ODDS) return false; //the second one alone is too close
+        double sum = 0;
+        for (double s : score) sum += Math.exp(s - best);
+        return 1d / sum > CONV_THRESHOLD;
+    }
+
     /**
      * Initialize the map of language probabilities.
      * If there is the specified prior map, use it as initial map.
+     * @param prob is overwritten
+     * @param candidates the languages of prob, null for all.
      * @return initialized map of language probabilities
      */
-    private double[] initProbability() {
-        double[] prob = new double[ngramFrequencyData.getLanguageList().size()];
-        if (priorMap != null) {
+    private double[] initProbability(double[] prob, @Nullable LanguageCandidates candidates) {
+        if (priorMap != null && candidates != null) {
+            for(int i=0;i<prob.length;++i) prob[i] = priorMap[candidates.languages[i]];
+        } else if (priorMap != null) {
             //TODO analyze and optimize this code, looks like double copy.
             System.arraycopy(priorMap, 0, prob, 0, prob.length);
             for(int i=0;i<prob.length;++i) prob[i] = priorMap[i];
@@ -232,30 +713,74 @@ public final class LanguageDetectorImpl implements LanguageDetector {
 
 
     /**
-     * update language probabilities with N-gram string(N=1,2,3)
+     * Same as {@link #initProbability}, as logarithms.
+     * @param score is overwritten
+     * @param candidates the languages of score, null for all.
+     */
+    private double[] initLogProbability(double[] score, @Nullable LanguageCandidates candidates) {
+        if (priorMap != null) {
+            for(int i=0;i<score.length;++i) score[i] = Math.log(priorMap[(candidates == null) ? i : candidates.languages[i]]);
+        } else {
+            //all the same, 0 is as good as log(1/size).
+            Arrays.fill(score, 0d);
+        }
+        return score;
+    }
+
+    /**
+     * Same as {@link #updateLangProb} in log scoring.
+     * @param gramIndex the n-gram in the ngramFrequencyData, -1 if unknown.
      * @param count 1-n: how often the gram occurred.
+     * @param candidates the languages of score, null for all.
      */
-    private boolean updateLangProb(@NotNull double[] prob, @NotNull String ngram, int count, double alpha) {
-        double[] langProbMap = ngramFrequencyData.getProbabilities(ngram);
-        if (langProbMap==null) {
-            return false;
+    private void addLogProb(@NotNull double[] score, int gramIndex, int count, @Nullable LanguageCandidates candidates) {
+        if (gramIndex==-1) {
+            return;
         }
-        if (logger.isTraceEnabled()) logger.trace(ngram + "(" + Util.unicodeEncode(ngram) + "):" + Util.wordProbToString(langProbMap, ngramFrequencyData.getLanguageList()));
+        assert logMatrix != null;
+        if (candidates == null) {
+            KERNEL.addScaled(score, logMatrix, gramIndex * score.length, count);
+        } else {
+            int offset = gramIndex * ngramFrequencyData.getLanguageList().size();
+            int[] languages = candidates.languages;
+            for (int i=0; i<score.length; i++) {
+                score[i] += count * logMatrix[offset + languages[i]];
+            }
+        }
+    }
 
+    /**
+     * @return the weight that is added to the probabilities of the n-gram.
+     */
+    private double gramWeight(int gramIndex, double alpha) {
         double weight = alpha / BASE_FREQ;
-        if (ngram.length() >1) {
-            if (prefixFactor !=1.0 && ngram.charAt(0)==' ') {
+        if (gramAffixes!=null) {
+            if (gramAffixes[gramIndex]==AFFIX_PREFIX) {
                 weight *= prefixFactor;
-            } else if (suffixFactor!=1.0 && ngram.charAt(ngram.length()-1)==' ') {
+            } else if (gramAffixes[gramIndex]==AFFIX_SUFFIX) {
                 weight *= suffixFactor;
             }
         }
-        for (int i=0; i<prob.length; ++i) {
-            for (int amount=0; amount<count; amount++) {
-                prob[i] *= (weight + langProbMap[i]);
-            }
+        return weight;
+    }
+
+    /**
+     * update language probabilities with N-gram string(N=1,2,3)
+     * @param data ngramFrequencyData, or a view of it with the languages of prob.
+     * @param gramIndex the n-gram in the ngramFrequencyData, -1 if unknown.
+     * @param count 1-n: how often the gram occurred.
+     * @return the factor that all languages still have to be multiplied with, see {@link NgramFrequencyData#multiply}.
+     */
+    private double updateLangProb(@NotNull NgramFrequencyData data, @NotNull double[] prob, int gramIndex, int count, double alpha) {
+        if (gramIndex==-1) {
+            return 1d;
         }
-        return true;
+        if (logger.isTraceEnabled()) {
+            String ngram = data.getGram(gramIndex);
+            logger.trace(ngram + "(" + Util.unicodeEncode(ngram) + "):" + Util.wordProbToString(data.getProbabilities(ngram), data.getLanguageList()));
+        }
+
+        return data.multiply(KERNEL, prob, gramIndex, gramWeight(gramIndex, alpha), count);
     }
 
 
@@ -265,12 +790,20 @@ public final class LanguageDetectorImpl implements LanguageDetector {
      */
     @NotNull
     private List<DetectedLanguage> sortProbability(double[] prob) {
+        return sortProbability(prob, ngramFrequencyData);
+    }
+
+    /**
+     * @param data the one with the languages of prob, in the same order.
+     */
+    @NotNull
+    private List<DetectedLanguage> sortProbability(double[] prob, NgramFrequencyData data) {
         List<DetectedLanguage> list = new ArrayList<>();
         //step 1: add all that have reached a minimal probability:
         for (int j=0;j<prob.length;++j) {
             double p = prob[j];
             if (p >= probabilityThreshold) {
-                list.add(new DetectedLanguage(ngramFrequencyData.getLanguage(j), p));
+                list.add(new DetectedLanguage(data.getLanguage(j), p));
             }
         }
         //step 2: sort in descending order
@@ -280,4 +813,43 @@ public final class LanguageDetectorImpl implements LanguageDetector {
         return list;
     }
 
+    /**
+     * Same as {@link #sortProbability(double[])}, without creating objects.
+     * @param order filled with the language indexes, sorted by probability descending.
+     * @return how many entries of order are used.
+     */
+    private int sortProbability(double[] prob, int[] order) {
+        return selectTop(prob, order, null);
+    }
+
+    /**
+     * Same as {@link #sortProbability(double[], int[])}, but keeps only the best languageIndexes.length ones:
+     * a language that does not make it into the top is dropped with one comparison.
+     * @param probabilities null, or filled with the probabilities in the same order.
+     * @return how many entries of languageIndexes are used.
+     */
+    private int selectTop(double[] prob, int[] languageIndexes, @Nullable double[] probabilities) {
+        int k = languageIndexes.length;
+        if (k == 0) return 0;
+        int size = 0;
+        for (int j=0;j<prob.length;++j) {
+            double p = prob[j];
+            if (p >= probabilityThreshold && (size < k || prob[languageIndexes[k-1]] < p)) {
+                //insertion sort, there are only a few. Stable like the list sort.
+                int pos = (size < k) ? size++ : k-1;
+                while (pos > 0 && prob[languageIndexes[pos-1]] < p) {
+                    languageIndexes[pos] = languageIndexes[pos-1];
+                    pos--;
+                }
+                languageIndexes[pos] = j;
+            }
+        }
+        if (probabilities != null) {
+            for (int i=0; i<size; i++) {
+                probabilities[i] = prob[languageIndexes[i]];
+            }
+        }
+        return size;
+    }
+
 }
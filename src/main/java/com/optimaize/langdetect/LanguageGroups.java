@@ -0,0 +1,180 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.optimaize.langdetect;
+
+import com.optimaize.langdetect.i18n.LdLocale;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * The first stage of the two-stage detection, see {@link LanguageDetectorBuilder#languageGroups}: finds the
+ * groups of languages that the text can be in, for the detector to only score their languages.
+ *
+ * <p>The groups are scored by a detector of their own, on the merged frequencies of their languages
+ * ({@link NgramFrequencyData#mergeLanguages}). It scores the n-grams that the detector of all languages
+ * collected, the gram indexes are the same.</p>
+ *
+ * <p>This class is thread-safe.</p>
+ */
+final class LanguageGroups {
+
+    /**
+     * The languages of the groups with at least this probability are scored. There is at least one, the best
+     * group has at least 1 / the number of groups.
+     */
+    private static final double MIN_GROUP_PROBABILITY = 0.01;
+
+    /**
+     * The candidates for texts with more than one likely group are cached, in this many slots. Only with up to
+     * 64 groups, the key is a bit set.
+     */
+    private static final int MAX_CACHED_COMBINATIONS = 256;
+
+    @NotNull
+    private final NgramFrequencyData data;
+    /**
+     * Key = group, value = per language index whether it's in that group.
+     */
+    @NotNull
+    private final boolean[][] members;
+    /**
+     * Scores the groups: its language k stands for group k, the names are not languages.
+     */
+    @NotNull
+    private final LanguageDetectorImpl groupDetector;
+    /**
+     * Key = group, value = the candidates for a text in just that group.
+     */
+    @NotNull
+    private final LanguageCandidates[] byGroup;
+    /**
+     * Key = the bits of the group indexes.
+     */
+    @NotNull
+    private final CandidatesCache byGroups = new CandidatesCache(MAX_CACHED_COMBINATIONS);
+    /**
+     * Stands for null in byGroups, where null means not cached.
+     */
+    @NotNull
+    private final LanguageCandidates noPruning;
+
+    /**
+     * @param groups see {@link #groupIndexes}
+     * @param groupDetector made for {@code data.mergeLanguages(groups)}
+     */
+    LanguageGroups(@NotNull NgramFrequencyData data, @NotNull int[][] groups, @NotNull LanguageDetectorImpl groupDetector) {
+        this.data = data;
+        this.groupDetector = groupDetector;
+        int numLanguages = data.getLanguageList().size();
+        this.members = new boolean[groups.length][numLanguages];
+        this.byGroup = new LanguageCandidates[groups.length];
+        for (int k=0; k<groups.length; k++) {
+            for (int languageIndex : groups[k]) {
+                members[k][languageIndex] = true;
+            }
+            byGroup[k] = LanguageCandidates.of(data, members[k]);
+        }
+        this.noPruning = new LanguageCandidates(new int[0], data);
+    }
+
+    /**
+     * Assigns the languages of the data to the groups. The languages that are not in the data are ignored,
+     * those not in a group get a group of their own.
+     * @param groups languages
+     * @return key = group, value = its language indexes in the data, ascending. Null if that's just one
+     *         group, or one group per language: then there's nothing to gain.
+     * @throws IllegalArgumentException if a language is in more than one group.
+     */
+    @Nullable
+    static int[][] groupIndexes(@NotNull NgramFrequencyData data, @NotNull Collection<? extends Collection<LdLocale>> groups) {
+        List<LdLocale> languages = data.getLanguageList();
+        Map<LdLocale, Integer> indexOf = new HashMap<>();
+        for (int i=0; i<languages.size(); i++) {
+            indexOf.put(languages.get(i), i);
+        }
+        int[] groupOf = new int[languages.size()];
+        Arrays.fill(groupOf, -1);
+        List<int[]> result = new ArrayList<>();
+        for (Collection<LdLocale> group : groups) {
+            List<Integer> indexes = new ArrayList<>();
+            for (LdLocale language : group) {
+                Integer languageIndex = indexOf.get(language);
+                if (languageIndex == null) continue;
+                if (groupOf[languageIndex] != -1) throw new IllegalArgumentException("The language "+language+" is in more than one group!");
+                groupOf[languageIndex] = result.size();
+                indexes.add(languageIndex);
+            }
+            if (!indexes.isEmpty()) result.add(toSortedArray(indexes));
+        }
+        for (int i=0; i<languages.size(); i++) {
+            if (groupOf[i] == -1) result.add(new int[]{i});
+        }
+        if (result.size() == 1 || result.size() == languages.size()) return null;
+        return result.toArray(new int[result.size()][]);
+    }
+
+    private static int[] toSortedArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i=0; i<array.length; i++) {
+            array[i] = list.get(i);
+        }
+        Arrays.sort(array);
+        return array;
+    }
+
+    /**
+     * @param ngrams as collected by the detector of all languages.
+     * @return the languages of the likely groups, null if that's all languages.
+     */
+    @Nullable
+    LanguageCandidates candidates(@NotNull CharSequence text, @NotNull TextNgrams ngrams, @NotNull DetectionContext context) {
+        double[] groupprob = groupDetector.detectBlock(text, ngrams, context, false);
+        int numLikely = 0;
+        int likely = -1;
+        for (int k=0; k<groupprob.length; k++) {
+            if (groupprob[k] >= MIN_GROUP_PROBABILITY) {
+                numLikely++;
+                likely = k;
+            }
+        }
+        if (numLikely == 1) return byGroup[likely];
+        boolean cacheable = groupprob.length <= Long.SIZE;
+        long key = 0L;
+        if (cacheable) {
+            for (int k=0; k<groupprob.length; k++) {
+                if (groupprob[k] >= MIN_GROUP_PROBABILITY) key |= 1L << k;
+            }
+        }
+        LanguageCandidates candidates = cacheable ? byGroups.get(key) : null;
+        if (candidates == null) {
+            boolean[] union = new boolean[data.getLanguageList().size()];
+            for (int k=0; k<groupprob.length; k++) {
+                if (groupprob[k] >= MIN_GROUP_PROBABILITY) {
+                    for (int j=0; j<union.length; j++) {
+                        union[j] |= members[k][j];
+                    }
+                }
+            }
+            candidates = LanguageCandidates.of(data, union);
+            if (candidates == null) candidates = noPruning;
+            if (cacheable) byGroups.put(key, candidates);
+        }
+        return (candidates == noPruning) ? null : candidates;
+    }
+
+}
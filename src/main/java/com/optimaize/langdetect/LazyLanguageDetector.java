@@ -0,0 +1,176 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.optimaize.langdetect;
+
+import com.google.common.base.Optional;
+import com.optimaize.langdetect.i18n.LdLocale;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@link BatchLanguageDetector} that loads its languages only when it is used the first time.
+ *
+ * <p>The first call starts loading all languages in the background. Calls wait up to a timeout for that.
+ * When it takes longer they are served by a detector with a few languages only (loaded in the calling
+ * thread, that's quick), or, if there are none configured, they get no result. If the executor rejects the
+ * loading, the first call loads the languages in its own thread.</p>
+ *
+ * <p>A call that is interrupted while waiting gets no result, with the interrupt flag of the thread set.</p>
+ *
+ * <p>See {@link LanguageDetectorBuilder#withLazyBuiltInLanguages}.</p>
+ *
+ * <p>This class is thread-safe.</p>
+ */
+final class LazyLanguageDetector implements BatchLanguageDetector {
+
+    @NotNull
+    private final FutureTask<BatchLanguageDetector> allLanguages;
+    @Nullable
+    private final FutureTask<BatchLanguageDetector> firstLanguages;
+    /**
+     * Long.MAX_VALUE for no limit.
+     */
+    private final long timeoutNanos;
+    @NotNull
+    private final Executor executor;
+    private final AtomicBoolean started = new AtomicBoolean(false);
+
+    /**
+     * @param allLanguages   creates the detector with all languages, run on the executor.
+     * @param firstLanguages creates the detector that is used while the other one is loading, or null for none.
+     * @param timeoutNanos   how long a call waits for all languages, Long.MAX_VALUE for no limit.
+     */
+    LazyLanguageDetector(@NotNull Callable<BatchLanguageDetector> allLanguages,
+                         @Nullable Callable<BatchLanguageDetector> firstLanguages,
+                         long timeoutNanos,
+                         @NotNull Executor executor) {
+        if (timeoutNanos<0) throw new IllegalArgumentException("timeout must be >= 0, but was: "+timeoutNanos);
+        this.allLanguages = new FutureTask<>(allLanguages);
+        this.firstLanguages = (firstLanguages==null) ? null : new FutureTask<>(firstLanguages);
+        this.timeoutNanos = timeoutNanos;
+        this.executor = executor;
+    }
+
+    /**
+     * @return whether all languages are loaded.
+     */
+    boolean isLoaded() {
+        return allLanguages.isDone();
+    }
+
+    /**
+     * @return null if no languages are available (yet), or if the calling thread was interrupted while
+     *         waiting for them (its interrupt flag is set again then).
+     * @throws IllegalStateException if loading the languages failed.
+     */
+    @Nullable
+    private BatchLanguageDetector detector() throws IllegalStateException {
+        if (started.compareAndSet(false, true)) {
+            try {
+                executor.execute(allLanguages);
+            } catch (RejectedExecutionException e) {
+                //for example shut down. The task must still run once, or all calls would wait for it forever.
+                allLanguages.run();
+            }
+        }
+        try {
+            if (allLanguages.isDone() || timeoutNanos==Long.MAX_VALUE) {
+                return get(allLanguages);
+            }
+            try {
+                return get(allLanguages, timeoutNanos);
+            } catch (TimeoutException e) {
+                if (firstLanguages==null) return null;
+                firstLanguages.run(); //does nothing if run already, or currently running in another thread.
+                return get(firstLanguages);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private static BatchLanguageDetector get(FutureTask<BatchLanguageDetector> task) throws InterruptedException {
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed loading the languages!", e.getCause());
+        }
+    }
+
+    private static BatchLanguageDetector get(FutureTask<BatchLanguageDetector> task, long timeoutNanos) throws InterruptedException, TimeoutException {
+        try {
+            return task.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed loading the languages!", e.getCause());
+        }
+    }
+
+
+    @Override
+    public Optional<LdLocale> detect(CharSequence text) {
+        BatchLanguageDetector detector = detector();
+        return detector==null ? Optional.<LdLocale>absent() : detector.detect(text);
+    }
+
+    @Override
+    public List<DetectedLanguage> getProbabilities(CharSequence text) {
+        BatchLanguageDetector detector = detector();
+        return detector==null ? Collections.<DetectedLanguage>emptyList() : detector.getProbabilities(text);
+    }
+
+    @Override
+    public void detect(CharSequence text, DetectionContext context, DetectionResult result) {
+        BatchLanguageDetector detector = detector();
+        if (detector==null) {
+            result.clear();
+        } else {
+            detector.detect(text, context, result);
+        }
+    }
+
+    @Override
+    public int detectTop(CharSequence text, DetectionContext context, int[] languageIndexes, double[] probabilities) {
+        BatchLanguageDetector detector = detector();
+        return detector==null ? 0 : detector.detectTop(text, context, languageIndexes, probabilities);
+    }
+
+    @Override
+    public BatchDetectionResult detectAll(List<? extends CharSequence> texts) {
+        BatchLanguageDetector detector = detector();
+        return detector==null ? noResults(texts) : detector.detectAll(texts);
+    }
+
+    @Override
+    public BatchDetectionResult detectAll(List<? extends CharSequence> texts, ExecutorService executor) throws InterruptedException {
+        BatchLanguageDetector detector = detector();
+        return detector==null ? noResults(texts) : detector.detectAll(texts, executor);
+    }
+
+    private static BatchDetectionResult noResults(List<? extends CharSequence> texts) {
+        BatchDetectionResult.Builder builder = new BatchDetectionResult.Builder(Collections.<LdLocale>emptyList(), 1d);
+        int[] none = new int[0];
+        for (int i=0; i<texts.size(); i++) {
+            builder.add(null, none, 0);
+        }
+        return builder.build();
+    }
+
+}
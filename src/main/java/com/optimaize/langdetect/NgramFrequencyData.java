@@ -17,6 +17,7 @@
 package com.optimaize.langdetect;
 
 import com.optimaize.langdetect.i18n.LdLocale;
+import com.optimaize.langdetect.ngram.PackedNgram;
 import com.optimaize.langdetect.profiles.LanguageProfile;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -36,20 +37,87 @@ import java.util.*;
 public final class NgramFrequencyData {
 
     /**
-     * Key   = ngram
-     * Value = array with probabilities per loaded language, in the same order as {@code langlist}.
+     * The codes qaa to qtz for the groups in {@link #mergeLanguages}.
+     */
+    private static final int MAX_GROUPS = 20 * 26;
+
+    /**
+     * Key   = packed ngram (see {@link PackedNgram}), for grams of up to 3 chars.
+     * Value = the row in {@code probabilities}.
+     */
+    @NotNull
+    private final PackedNgramIndex packedGramIndex;
+
+    /**
+     * Same as packedGramIndex, for the grams that are too long to be packed.
+     * Usually empty, the built-in profiles have 1-3 grams only.
+     */
+    @NotNull
+    private final Map<String, Integer> longGramIndex;
+    /**
+     * The reverse of longGramIndex, at position (row - number of packed grams).
+     */
+    @NotNull
+    private final String[] longGrams;
+
+    /**
+     * The probabilities per n-gram and loaded language, one row of {@code numColumns} values per n-gram.
+     * The values of a row are in the same order as {@code columnLanguages}.
+     * The n-grams in sparseRows don't have a row here, see {@link SparseGramRows#getDenseRow}.
+     */
+    @NotNull
+    private final ProbabilityMatrix probabilities;
+
+    /**
+     * Null if all n-grams have a row in probabilities, the gram index is the row then.
+     */
+    @Nullable
+    private final SparseGramRows sparseRows;
+
+    /**
+     * The languages of the values in a row of probabilities. Same as langlist, unless this is a view.
      */
     @NotNull
-    private final Map<String, double[]> wordLangProbMap;
+    private final List<LdLocale> columnLanguages;
+    private final int numColumns;
+
+    /**
+     * Null unless this is a {@link #forLanguages view}.
+     * Key = language index in langlist, value = its column in the rows of probabilities.
+     */
+    @Nullable
+    private final int[] columns;
+    /**
+     * The reverse of columns: key = column, value = language index in langlist, or -1 if not in the view.
+     */
+    @Nullable
+    private final int[] languageOfColumn;
+    /**
+     * Null unless this is a view. Key = gram index, set if a language of the view knows the n-gram.
+     */
+    @Nullable
+    private final BitSet knownGrams;
+
+    /**
+     * The largest of all stored probabilities, also of the languages that are not in the view.
+     */
+    private final double maxProbability;
 
     /**
-     * All the loaded languages, in exactly the same order as the data is in the double[] in wordLangProbMap.
-     * Example: if wordLangProbMap has an entry for the n-gram "foo" then for each locale in this langlist here
+     * All the loaded languages, in exactly the same order as the data is in the rows of probabilities
+     * (for a view: in the order of the view, see columns).
+     * Example: if there is a row for the n-gram "foo" then for each locale in this langlist here
      * it has a value there. Languages that don't know the n-gram have the value 0d.
      */
     @NotNull
     private final List<LdLocale> langlist;
 
+    /**
+     * The n-gram lengths the data was made for, sorted ascending. For example [1,2,3]
+     */
+    @NotNull
+    private final List<Integer> gramLengths;
+
 
     /**
      * @param gramLengths for example [1,2,3]
@@ -61,9 +129,41 @@ public final class NgramFrequencyData {
         if (languageProfiles.isEmpty()) throw new IllegalArgumentException("No languageProfiles provided!");
         if (gramLengths.isEmpty()) throw new IllegalArgumentException("No gramLengths provided!");
 
-        Map<String, double[]> wordLangProbMap = new HashMap<>();
+        //step 1: assign a row to every n-gram.
+        int expectedNumGrams = 0;
+        for (LanguageProfile profile : languageProfiles) {
+            for (Integer gramLength : gramLengths) {
+                if (!profile.getGramLengths().contains(gramLength)) {
+                    throw new IllegalArgumentException("The language profile for "+profile.getLocale()+" does not contain "+gramLength+"-grams!");
+                }
+                expectedNumGrams = Math.max(expectedNumGrams, profile.getNumGrams(gramLength));
+            }
+        }
+        PackedNgramIndex packedGramIndex = new PackedNgramIndex(expectedNumGrams * 2);
+        Map<String, Integer> longGramIndex = new HashMap<>();
+        for (LanguageProfile profile : languageProfiles) {
+            for (Integer gramLength : gramLengths) {
+                for (Map.Entry<String, Integer> ngramEntry : profile.iterateGrams(gramLength)) {
+                    String ngram = ngramEntry.getKey();
+                    if (PackedNgram.canPack(ngram)) {
+                        packedGramIndex.add(PackedNgram.pack(ngram));
+                    } else if (!longGramIndex.containsKey(ngram)) {
+                        longGramIndex.put(ngram, longGramIndex.size());
+                    }
+                }
+            }
+        }
+        //the long grams get the rows after all packed grams.
+        int numPacked = packedGramIndex.size();
+        int numLong = longGramIndex.size();
+        for (Map.Entry<String, Integer> entry : longGramIndex.entrySet()) {
+            entry.setValue(numPacked + entry.getValue());
+        }
+
+        //step 2: fill in the probabilities.
         List<LdLocale> langlist = new ArrayList<>();
         int langsize = languageProfiles.size();
+        double[] probabilities = new double[(numPacked + numLong) * langsize];
 
         int index = -1;
         for (LanguageProfile profile : languageProfiles) {
@@ -72,29 +172,270 @@ public final class NgramFrequencyData {
             langlist.add( profile.getLocale() );
 
             for (Integer gramLength : gramLengths) {
-                if (!profile.getGramLengths().contains(gramLength)) {
-                    throw new IllegalArgumentException("The language profile for "+profile.getLocale()+" does not contain "+gramLength+"-grams!");
-                }
                 for (Map.Entry<String, Integer> ngramEntry : profile.iterateGrams(gramLength)) {
                     String ngram      = ngramEntry.getKey();
                     Integer frequency = ngramEntry.getValue();
-                    if (!wordLangProbMap.containsKey(ngram)) {
-                        wordLangProbMap.put(ngram, new double[langsize]);
-                    }
+                    int row = PackedNgram.canPack(ngram) ? packedGramIndex.get(PackedNgram.pack(ngram)) : longGramIndex.get(ngram);
                     double prob = frequency.doubleValue() / profile.getNumGramOccurrences(ngram.length());
-                    wordLangProbMap.get(ngram)[index] = prob;
+                    probabilities[row * langsize + index] = prob;
                 }
             }
         }
 
-        return new NgramFrequencyData(wordLangProbMap, langlist);
+        return new NgramFrequencyData(packedGramIndex, longGramIndex, probabilities, langlist, new ArrayList<>(gramLengths));
     }
 
-    private NgramFrequencyData(@NotNull Map<String, double[]> wordLangProbMap,
-                               @NotNull List<LdLocale> langlist) {
+    /**
+     * @param longGramIndex values are the rows, after the packed grams.
+     */
+    NgramFrequencyData(@NotNull PackedNgramIndex packedGramIndex,
+                       @NotNull Map<String, Integer> longGramIndex,
+                       @NotNull double[] probabilities,
+                       @NotNull List<LdLocale> langlist,
+                       @NotNull List<Integer> gramLengths) {
+        if (probabilities.length != (packedGramIndex.size() + longGramIndex.size()) * langlist.size()) {
+            throw new IllegalArgumentException("The probabilities don't match the number of grams and languages!");
+        }
         //not making immutable copies because I create them here (optimization).
-        this.wordLangProbMap = Collections.unmodifiableMap(wordLangProbMap);
+        this.packedGramIndex = packedGramIndex;
+        this.longGramIndex = Collections.unmodifiableMap(longGramIndex);
+        this.longGrams = new String[longGramIndex.size()];
+        for (Map.Entry<String, Integer> entry : longGramIndex.entrySet()) {
+            longGrams[entry.getValue() - packedGramIndex.size()] = entry.getKey();
+        }
+        this.probabilities = ProbabilityMatrix.create(probabilities, ProbabilityPrecision.DOUBLE);
+        this.sparseRows = null;
+        this.langlist = Collections.unmodifiableList(langlist);
+        this.columnLanguages = this.langlist;
+        this.numColumns = langlist.size();
+        this.columns = null;
+        this.languageOfColumn = null;
+        this.knownGrams = null;
+        this.maxProbability = maxProbability(this.probabilities, null);
+        Collections.sort(gramLengths);
+        this.gramLengths = Collections.unmodifiableList(gramLengths);
+    }
+
+    /**
+     * Same n-grams with the probabilities stored another way, or a view of some languages. The n-gram index
+     * is shared (it's immutable).
+     * @param langlist the languages of the view, or columnLanguages.
+     * @param columns see the field, null if not a view.
+     */
+    private NgramFrequencyData(@NotNull NgramFrequencyData data,
+                               @NotNull ProbabilityMatrix probabilities, @Nullable SparseGramRows sparseRows,
+                               double maxProbability, @NotNull List<LdLocale> columnLanguages,
+                               @NotNull List<LdLocale> langlist, @Nullable int[] columns) {
+        this.packedGramIndex = data.packedGramIndex;
+        this.longGramIndex = data.longGramIndex;
+        this.longGrams = data.longGrams;
+        this.gramLengths = data.gramLengths;
+        this.probabilities = probabilities;
+        this.sparseRows = sparseRows;
+        this.maxProbability = maxProbability;
+        this.columnLanguages = columnLanguages;
+        this.numColumns = columnLanguages.size();
         this.langlist = Collections.unmodifiableList(langlist);
+        this.columns = columns;
+        if (columns == null) {
+            this.languageOfColumn = null;
+            this.knownGrams = null;
+        } else {
+            this.languageOfColumn = new int[numColumns];
+            Arrays.fill(languageOfColumn, -1);
+            for (int i=0; i<columns.length; i++) {
+                languageOfColumn[columns[i]] = i;
+            }
+            this.knownGrams = knownGrams(columns, languageOfColumn);
+        }
+    }
+
+    /**
+     * Reads all n-grams once, so that a lookup during detection does not have to read the row.
+     */
+    @NotNull
+    private BitSet knownGrams(@NotNull int[] columns, @NotNull int[] languageOfColumn) {
+        int numGrams = getNumGrams();
+        BitSet known = new BitSet(numGrams);
+        for (int gramIndex=0; gramIndex<numGrams; gramIndex++) {
+            int row = (sparseRows == null) ? gramIndex : sparseRows.getDenseRow(gramIndex);
+            if (row == -1) {
+                if (sparseRows.isKnownByAny(gramIndex, languageOfColumn)) known.set(gramIndex);
+                continue;
+            }
+            int offset = row * numColumns;
+            for (int column : columns) {
+                if (probabilities.get(offset + column) != 0d) {
+                    known.set(gramIndex);
+                    break;
+                }
+            }
+        }
+        return known;
+    }
+
+    private static double maxProbability(@NotNull ProbabilityMatrix probabilities, @Nullable SparseGramRows sparseRows) {
+        double max = (sparseRows == null) ? 0d : sparseRows.getMaxValue();
+        for (int i=0; i<probabilities.size(); i++) {
+            max = Math.max(max, probabilities.get(i));
+        }
+        return max;
+    }
+
+    /**
+     * Returns a view of this data for some of its languages, for example to build a detector per customer,
+     * each with other languages, from one data for all languages.
+     *
+     * <p>Nothing is copied, the view shares the n-grams and probabilities with this data. It behaves the same
+     * as data {@link #create created} from the profiles of these languages only: the n-grams that none of them
+     * knows are unknown. Making a view reads all n-grams once to mark those, with the built-in languages that
+     * takes some milliseconds, and the marks take 1 bit per n-gram.</p>
+     *
+     * @param languages the languages of the view, in the order of its {@link #getLanguageList()}.
+     * @return this if it's the same languages in the same order.
+     * @throws IllegalArgumentException if languages is empty, has a language twice, or one that this data
+     *         does not have.
+     */
+    @NotNull
+    public NgramFrequencyData forLanguages(@NotNull Collection<LdLocale> languages) throws IllegalArgumentException {
+        if (languages.isEmpty()) throw new IllegalArgumentException("No languages provided!");
+        List<LdLocale> viewLanguages = new ArrayList<>(languages);
+        if (viewLanguages.equals(langlist)) return this;
+        Map<LdLocale, Integer> columnOf = new HashMap<>();
+        for (int i=0; i<langlist.size(); i++) {
+            columnOf.put(langlist.get(i), (columns == null) ? i : columns[i]);
+        }
+        int[] viewColumns = new int[viewLanguages.size()];
+        boolean[] taken = new boolean[numColumns];
+        for (int i=0; i<viewColumns.length; i++) {
+            Integer column = columnOf.get(viewLanguages.get(i));
+            if (column == null) throw new IllegalArgumentException("The data has no language "+viewLanguages.get(i)+"!");
+            if (taken[column]) throw new IllegalArgumentException("The language "+viewLanguages.get(i)+" was given twice!");
+            taken[column] = true;
+            viewColumns[i] = column;
+        }
+        return new NgramFrequencyData(this, probabilities, sparseRows, maxProbability, columnLanguages, viewLanguages, viewColumns);
+    }
+
+    /**
+     * Returns the same data with the probabilities stored in another precision. The n-gram index is shared,
+     * only the probabilities are copied.
+     *
+     * <p>Converting from a less precise to a more precise storage does not bring back the lost precision,
+     * create the data from the profiles again for that.</p>
+     *
+     * @return this if the data is stored in that precision already.
+     */
+    @NotNull
+    public NgramFrequencyData withPrecision(@NotNull ProbabilityPrecision precision) {
+        return withStorage(precision, getSparseGramLanguages());
+    }
+
+    /**
+     * Returns the same data with the n-grams that only a few languages know stored as (language, probability)
+     * pairs, instead of a row with a value for every language. That's most n-grams: of the built-in
+     * languages, 77% of the n-grams are known by one language only. It saves memory, and the detector only
+     * works on the listed languages for these n-grams.
+     *
+     * <p>The results are the same as with the full rows, up to rounding in the last bits.</p>
+     *
+     * @param maxLanguages the n-grams known by at most so many languages are stored sparse. 0 for none.
+     * @return this if the data is stored that way already.
+     */
+    @NotNull
+    public NgramFrequencyData withSparseGrams(int maxLanguages) {
+        return withStorage(getPrecision(), maxLanguages);
+    }
+
+    /**
+     * Merges languages into groups: the probability of an n-gram in a group is the mean of the probabilities
+     * in its languages. That's the same as merging the profiles of the languages, each with the same weight.
+     * The n-grams are shared with this data, a gram index is the same in both.
+     *
+     * <p>The groups are not languages. The returned data names them by the codes qaa, qab, ... that ISO 639-2
+     * reserves for local use, in the order of the groups. Map the results back with the group indexes.</p>
+     *
+     * @param groups key = group, value = its language indexes. Each language in one group at most.
+     * @return data in the same storage as this.
+     * @throws IllegalArgumentException if there are more than 520 groups, that's all the codes qaa to qtz.
+     */
+    @NotNull
+    NgramFrequencyData mergeLanguages(@NotNull int[][] groups) {
+        if (groups.length > MAX_GROUPS) throw new IllegalArgumentException("At most "+MAX_GROUPS+" groups, but were: "+groups.length);
+        double[] merged = new double[getNumGrams() * groups.length];
+        List<LdLocale> groupLanguages = new ArrayList<>(groups.length);
+        for (int k=0; k<groups.length; k++) {
+            groupLanguages.add(LdLocale.fromString("q" + (char) ('a' + k / 26) + (char) ('a' + k % 26)));
+        }
+        for (int gramIndex=0; gramIndex<getNumGrams(); gramIndex++) {
+            for (int k=0; k<groups.length; k++) {
+                double sum = 0d;
+                for (int languageIndex : groups[k]) {
+                    sum += getProbability(gramIndex, languageIndex);
+                }
+                merged[gramIndex * groups.length + k] = sum / groups[k].length;
+            }
+        }
+        ProbabilityMatrix probabilities = ProbabilityMatrix.create(merged, ProbabilityPrecision.DOUBLE);
+        NgramFrequencyData data = new NgramFrequencyData(this, probabilities, null, maxProbability(probabilities, null),
+                groupLanguages, groupLanguages, null);
+        return data.withStorage(getPrecision(), Math.min(getSparseGramLanguages(), groups.length - 1));
+    }
+
+    /**
+     * Both {@link #withPrecision} and {@link #withSparseGrams} in one go.
+     *
+     * <p>For a {@link #forLanguages view} the data of all languages is converted, and a view of that is
+     * returned. Better convert the data once, and then make the views.</p>
+     */
+    @NotNull
+    NgramFrequencyData withStorage(@NotNull ProbabilityPrecision precision, int sparseMaxLanguages) {
+        if (sparseMaxLanguages < 0) throw new IllegalArgumentException("maxLanguages must be >= 0, but was: "+sparseMaxLanguages);
+        if (getPrecision() == precision && getSparseGramLanguages() == sparseMaxLanguages) return this;
+        double[] all = allProbabilities();
+        ProbabilityMatrix converted;
+        SparseGramRows convertedSparse;
+        if (sparseMaxLanguages == 0) {
+            convertedSparse = null;
+            converted = ProbabilityMatrix.create(all, precision);
+        } else {
+            convertedSparse = new SparseGramRows(all, numColumns, sparseMaxLanguages, precision);
+            converted = ProbabilityMatrix.create(convertedSparse.denseValues(all, numColumns), precision);
+        }
+        NgramFrequencyData data = new NgramFrequencyData(this, converted, convertedSparse, maxProbability(converted, convertedSparse),
+                columnLanguages, columnLanguages, null);
+        return (columns == null) ? data : data.forLanguages(langlist);
+    }
+
+    /**
+     * @return See {@link #withSparseGrams}, 0 unless changed with it.
+     */
+    public int getSparseGramLanguages() {
+        return sparseRows == null ? 0 : sparseRows.getMaxLanguages();
+    }
+
+    /**
+     * @return the values of all columns in one row per n-gram, don't modify.
+     */
+    @NotNull
+    private double[] allProbabilities() {
+        if (sparseRows == null) return probabilities.toDoubles();
+        double[] all = new double[getNumGrams() * numColumns];
+        for (int gramIndex=0; gramIndex<getNumGrams(); gramIndex++) {
+            for (int column=0; column<numColumns; column++) {
+                all[gramIndex * numColumns + column] = getStoredProbability(gramIndex, column);
+            }
+        }
+        return all;
+    }
+
+    /**
+     * @return How the probabilities are stored, {@link ProbabilityPrecision#DOUBLE} unless changed with
+     *         {@link #withPrecision}.
+     */
+    @NotNull
+    public ProbabilityPrecision getPrecision() {
+        return probabilities.getPrecision();
     }
 
 
@@ -108,14 +449,148 @@ public final class NgramFrequencyData {
     }
 
     /**
-     * Don't modify this data structure! (Can't make array immutable...)
+     * @return The n-gram lengths this data was made for, sorted ascending. For example [1,2,3]
+     */
+    @NotNull
+    public List<Integer> getGramLengths() {
+        return gramLengths;
+    }
+
+    /**
      * @return null if no language profile knows that ngram.
      *         entries are 0 for languages that don't know that ngram at all.
      *         The array is in the order of the {@link #getLanguageList()} language list, and has exactly that size.
+     *         It is a copy, the caller may modify it.
      *         impl note: this way the caller can handle it more efficient than returning an empty array.
      */
     @Nullable
     public double[] getProbabilities(String ngram) {
-        return wordLangProbMap.get(ngram);
+        return copyRow(getGramIndex(ngram));
+    }
+
+    /**
+     * Same as {@link #getProbabilities(String)} for a {@link PackedNgram packed} n-gram, without the
+     * need to create a String.
+     */
+    @Nullable
+    public double[] getProbabilities(long packedNgram) {
+        return copyRow(getGramIndex(packedNgram));
+    }
+
+    @Nullable
+    private double[] copyRow(int gramIndex) {
+        if (gramIndex == -1) return null;
+        double[] row = new double[langlist.size()];
+        for (int i=0; i<row.length; i++) {
+            row[i] = getProbability(gramIndex, i);
+        }
+        return row;
+    }
+
+    /**
+     * @return The number of distinct n-grams known by any language. For a {@link #forLanguages view} it's the
+     *         number of the data it was made from, see {@link #isKnown}.
+     */
+    public int getNumGrams() {
+        return packedGramIndex.size() + longGramIndex.size();
+    }
+
+    /**
+     * @return 0 to {@link #getNumGrams()}-1, or -1 if no language profile knows that ngram.
+     */
+    int getGramIndex(@NotNull String ngram) {
+        if (PackedNgram.canPack(ngram)) {
+            return getGramIndex(PackedNgram.pack(ngram));
+        }
+        Integer index = longGramIndex.get(ngram);
+        return (index == null || !isKnown(index)) ? -1 : index;
+    }
+
+    /**
+     * @return 0 to {@link #getNumGrams()}-1, or -1 if no language profile knows that ngram.
+     */
+    int getGramIndex(long packedNgram) {
+        int index = packedGramIndex.get(packedNgram);
+        return (index == -1 || isKnown(index)) ? index : -1;
+    }
+
+    /**
+     * The n-grams are shared with the data a {@link #forLanguages view} was made from, some of them may not
+     * be known by any language of the view.
+     * @param gramIndex 0 to {@link #getNumGrams()}-1
+     * @return true if a language of this data has a probability for the n-gram.
+     */
+    boolean isKnown(int gramIndex) {
+        return knownGrams == null || knownGrams.get(gramIndex);
+    }
+
+    /**
+     * @return The number of n-grams that are stored {@link PackedNgram packed}, they come first.
+     */
+    int getNumPackedGrams() {
+        return packedGramIndex.size();
+    }
+
+    /**
+     * @param gramIndex 0 to {@link #getNumPackedGrams()}-1
+     */
+    long getPackedGram(int gramIndex) {
+        return packedGramIndex.keyAt(gramIndex);
+    }
+
+    /**
+     * @param gramIndex 0 to {@link #getNumGrams()}-1
+     */
+    @NotNull
+    String getGram(int gramIndex) {
+        int numPacked = packedGramIndex.size();
+        if (gramIndex < numPacked) {
+            return PackedNgram.toString(packedGramIndex.keyAt(gramIndex));
+        }
+        return longGrams[gramIndex - numPacked];
+    }
+
+    /**
+     * @param gramIndex 0 to {@link #getNumGrams()}-1
+     * @param languageIndex 0 to the number of languages-1
+     */
+    double getProbability(int gramIndex, int languageIndex) {
+        return getStoredProbability(gramIndex, (columns == null) ? languageIndex : columns[languageIndex]);
+    }
+
+    private double getStoredProbability(int gramIndex, int column) {
+        int row = (sparseRows == null) ? gramIndex : sparseRows.getDenseRow(gramIndex);
+        if (row == -1) return sparseRows.get(gramIndex, column);
+        return probabilities.get(row * numColumns + column);
+    }
+
+    /**
+     * @return the largest probability of all n-grams and languages. For a {@link #forLanguages view} it's
+     *         the one of all languages it was made from, which is good enough as an upper bound.
+     */
+    double getMaxProbability() {
+        return maxProbability;
+    }
+
+    /**
+     * For each language i: {@code prob[i] *= (weight + getProbability(gramIndex, i))}, count times.
+     *
+     * <p>For a {@link #withSparseGrams sparse} n-gram the factor that all languages have in common is not
+     * applied, but returned. The caller multiplies all probabilities with it later, or leaves it out when
+     * normalizing anyway.</p>
+     *
+     * @return the factor that still has to be applied to all languages, 1 if none.
+     */
+    double multiply(@NotNull ProbabilityKernel kernel, @NotNull double[] prob, int gramIndex, double weight, int count) {
+        int row = (sparseRows == null) ? gramIndex : sparseRows.getDenseRow(gramIndex);
+        if (row == -1) {
+            return sparseRows.multiply(prob, gramIndex, weight, count, columns, languageOfColumn);
+        }
+        if (columns == null) {
+            probabilities.multiply(kernel, prob, row * numColumns, weight, count);
+        } else {
+            probabilities.multiply(prob, row * numColumns, columns, weight, count);
+        }
+        return 1d;
     }
 }
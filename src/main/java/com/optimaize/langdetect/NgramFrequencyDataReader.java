@@ -0,0 +1,181 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.optimaize.langdetect;
+
+import com.optimaize.langdetect.i18n.LdLocale;
+import com.optimaize.langdetect.ngram.PackedNgram;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.Buffer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads {@link NgramFrequencyData} from the binary format written by the {@link NgramFrequencyDataWriter}.
+ *
+ * <p>The detector works on heap arrays: the data is copied onto the heap in the precision it was written with,
+ * and the file is not needed anymore after loading. Each process that loads it has its own copy.</p>
+ *
+ * <p>Use the result with {@link LanguageDetectorBuilder#withFrequencyData}.</p>
+ */
+public class NgramFrequencyDataReader {
+
+    /**
+     * @throws java.io.IOException if the file can't be read, or is not in the expected format.
+     */
+    @NotNull
+    public NgramFrequencyData read(@NotNull File file) throws IOException {
+        try (InputStream inputStream = new FileInputStream(file)) {
+            return read(inputStream);
+        }
+    }
+
+    /**
+     * Reads the data from a stream, for example a classpath resource. The stream is not closed.
+     * @throws java.io.IOException if the stream can't be read, or is not in the expected format.
+     */
+    @NotNull
+    public NgramFrequencyData read(@NotNull InputStream inputStream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[64 * 1024];
+        int read;
+        while ((read = inputStream.read(chunk)) != -1) {
+            out.write(chunk, 0, read);
+        }
+        return read(ByteBuffer.wrap(out.toByteArray()));
+    }
+
+    /**
+     * Reads the data from the buffer, starting at position 0.
+     * @throws java.io.IOException if the data is not in the expected format.
+     */
+    @NotNull
+    public NgramFrequencyData read(@NotNull ByteBuffer buffer) throws IOException {
+        buffer = buffer.duplicate().order(NgramFrequencyDataWriter.BYTE_ORDER);
+        //the cast keeps this working on Java 8, where ByteBuffer does not override position(int).
+        ((Buffer) buffer).position(0);
+        try {
+            if (buffer.getInt() != NgramFrequencyDataWriter.MAGIC) {
+                throw new IOException("Not a binary n-gram frequency file!");
+            }
+            int version = buffer.getInt();
+            if (version != NgramFrequencyDataWriter.VERSION) {
+                throw new IOException("Unsupported binary n-gram frequency file version: "+version);
+            }
+
+            int numGramLengths = readCount(buffer);
+            List<Integer> gramLengths = new ArrayList<>(numGramLengths);
+            for (int i=0; i<numGramLengths; i++) {
+                gramLengths.add(buffer.getInt());
+            }
+            int numLanguages = readCount(buffer);
+            List<LdLocale> langlist = new ArrayList<>(numLanguages);
+            for (int i=0; i<numLanguages; i++) {
+                langlist.add(LdLocale.fromString(readString(buffer)));
+            }
+            ProbabilityPrecision precision = ProbabilityPrecision.valueOf(readString(buffer));
+            int sparseGramLanguages = readCount(buffer);
+            int numPacked = readCount(buffer);
+            int numLong = readCount(buffer);
+            Map<String, Integer> longGramIndex = new HashMap<>();
+            for (int i=0; i<numLong; i++) {
+                if (longGramIndex.put(readString(buffer), numPacked + i) != null) {
+                    throw new IOException("Duplicate n-gram in binary n-gram frequency file!");
+                }
+            }
+            align(buffer, 8);
+
+            int numGrams = numPacked + numLong;
+            if ((long) numPacked * 8 + ((long) numGrams + 1) * 4 > buffer.remaining()) {
+                throw new IOException("Binary n-gram frequency file is truncated!");
+            }
+            long[] packedGrams = new long[numPacked];
+            buffer.asLongBuffer().get(packedGrams);
+            ((Buffer) buffer).position(buffer.position() + numPacked * 8);
+            int[] start = new int[numGrams + 1];
+            buffer.asIntBuffer().get(start);
+            ((Buffer) buffer).position(buffer.position() + start.length * 4);
+            for (int i=0; i<numGrams; i++) {
+                if (start[i] > start[i + 1]) throw new IOException("Invalid value offsets in binary n-gram frequency file!");
+            }
+            int numValues = start[numGrams];
+            if (start[0] != 0 || numValues > buffer.remaining() / 2) {
+                throw new IOException("Invalid value offsets in binary n-gram frequency file!");
+            }
+            char[] languages = new char[numValues];
+            buffer.asCharBuffer().get(languages);
+            ((Buffer) buffer).position(buffer.position() + numValues * 2);
+            align(buffer, 8);
+            int bytesPerValue = (precision == ProbabilityPrecision.DOUBLE) ? 8 : 4;
+            if ((long) numValues * bytesPerValue != buffer.remaining()) {
+                throw new IOException("Binary n-gram frequency file has the wrong size!");
+            }
+
+            double[] probabilities = new double[numGrams * numLanguages];
+            for (int gramIndex=0; gramIndex<numGrams; gramIndex++) {
+                for (int k=start[gramIndex]; k<start[gramIndex + 1]; k++) {
+                    if (languages[k] >= numLanguages) throw new IOException("Invalid language index in binary n-gram frequency file!");
+                    double value = (precision == ProbabilityPrecision.DOUBLE) ? buffer.getDouble() : buffer.getFloat();
+                    probabilities[gramIndex * numLanguages + languages[k]] = value;
+                }
+            }
+
+            PackedNgramIndex packedGramIndex = new PackedNgramIndex(numPacked);
+            for (int i=0; i<numPacked; i++) {
+                int gramLength = PackedNgram.length(packedGrams[i]);
+                if (gramLength < 1 || gramLength > PackedNgram.MAX_LENGTH) {
+                    throw new IOException("Invalid packed n-gram in binary n-gram frequency file!");
+                }
+                if (packedGramIndex.add(packedGrams[i]) != i) {
+                    throw new IOException("Duplicate n-gram in binary n-gram frequency file!");
+                }
+            }
+            return new NgramFrequencyData(packedGramIndex, longGramIndex, probabilities, langlist, gramLengths)
+                    .withStorage(precision, sparseGramLanguages);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Binary n-gram frequency file is truncated!", e);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid binary n-gram frequency file: "+e.getMessage(), e);
+        }
+    }
+
+    private static void align(ByteBuffer buffer, int alignment) {
+        while (buffer.position() % alignment != 0) {
+            buffer.get();
+        }
+    }
+
+    private static int readCount(ByteBuffer buffer) throws IOException {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining()) {
+            throw new IOException("Invalid count in binary n-gram frequency file: "+count);
+        }
+        return count;
+    }
+
+    private static String readString(ByteBuffer buffer) throws IOException {
+        int length = readCount(buffer);
+        char[] chars = new char[length];
+        buffer.asCharBuffer().get(chars);
+        ((Buffer) buffer).position(buffer.position() + length * 2);
+        return new String(chars);
+    }
+
+}
@@ -0,0 +1,246 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.optimaize.langdetect;
+
+import com.optimaize.langdetect.i18n.LdLocale;
+import com.optimaize.langdetect.profiles.LanguageProfile;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Writes {@link NgramFrequencyData} in a compact binary format, to be loaded again with the
+ * {@link NgramFrequencyDataReader}.
+ *
+ * <p>Loading the binary data is much faster than reading the json language profiles and computing the
+ * n-gram frequencies from them. Create the file once, for example at build time, for the languages and
+ * n-gram lengths you need.</p>
+ *
+ * <p>The format, all numbers little-endian:</p>
+ * <pre>
+ * int       magic number 0x4C444E46
+ * int       format version, 2
+ * int       number of gram lengths, then each as int
+ * int       number of languages L, then each as string
+ * string    the {@link ProbabilityPrecision} by name
+ * int       the {@link NgramFrequencyData#getSparseGramLanguages() sparse gram languages}, 0 for none
+ * int       number of packed grams P (see {@link com.optimaize.langdetect.ngram.PackedNgram})
+ * int       number of longer grams Q, then each as string
+ * byte[]    zero padding to a multiple of 8
+ * long[P]   the packed grams
+ * int[P+Q+1] per n-gram where its values start, the values of n-gram i are start[i] to start[i+1]-1
+ * char[N]   per value the language index, ascending per n-gram (N = start[P+Q])
+ * byte[]    zero padding to a multiple of 8
+ * double[N] the non-zero probabilities, as float[N] for all precisions but DOUBLE
+ *
+ * string: int length, then the UTF-16 chars
+ * </pre>
+ * <p>Only the non-zero probabilities are written, most n-grams are known by one or two languages. They are
+ * written with the values as stored, the quantized precisions as floats: reading encodes them to the same
+ * values again, up to rounding in the last bits. The data is read back in the same precision and with the
+ * same sparse n-grams.</p>
+ * <p>A {@link NgramFrequencyData#forLanguages view} is written with its languages only, and without the n-grams
+ * that none of them knows.</p>
+ */
+public class NgramFrequencyDataWriter {
+
+    static final int MAGIC = 0x4C444E46;
+    static final int VERSION = 2;
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Writes the data to the stream. The stream is not closed.
+     * @throws java.io.IOException
+     */
+    public void write(@NotNull NgramFrequencyData data, @NotNull OutputStream outputStream) throws IOException {
+        BinaryOutput out = new BinaryOutput(Channels.newChannel(outputStream));
+        int[] grams = knownGrams(data);
+        int numPacked = 0;
+        while (numPacked < grams.length && grams[numPacked] < data.getNumPackedGrams()) {
+            numPacked++;
+        }
+
+        out.putInt(MAGIC);
+        out.putInt(VERSION);
+        out.putInt(data.getGramLengths().size());
+        for (Integer gramLength : data.getGramLengths()) {
+            out.putInt(gramLength);
+        }
+        int numLanguages = data.getLanguageList().size();
+        if (numLanguages > Character.MAX_VALUE) throw new IllegalArgumentException("Too many languages: "+numLanguages);
+        out.putInt(numLanguages);
+        for (LdLocale locale : data.getLanguageList()) {
+            out.putString(locale.toString());
+        }
+        ProbabilityPrecision precision = data.getPrecision();
+        out.putString(precision.name());
+        out.putInt(data.getSparseGramLanguages());
+        out.putInt(numPacked);
+        out.putInt(grams.length - numPacked);
+        for (int i=numPacked; i<grams.length; i++) {
+            out.putString(data.getGram(grams[i]));
+        }
+        out.align(8);
+        for (int i=0; i<numPacked; i++) {
+            out.putLong(data.getPackedGram(grams[i]));
+        }
+        int numValues = 0;
+        out.putInt(numValues);
+        for (int gramIndex : grams) {
+            for (int i=0; i<numLanguages; i++) {
+                if (data.getProbability(gramIndex, i) != 0d) numValues++;
+            }
+            out.putInt(numValues);
+        }
+        for (int gramIndex : grams) {
+            for (int i=0; i<numLanguages; i++) {
+                if (data.getProbability(gramIndex, i) != 0d) out.putChar((char) i);
+            }
+        }
+        out.align(8);
+        for (int gramIndex : grams) {
+            for (int i=0; i<numLanguages; i++) {
+                double p = data.getProbability(gramIndex, i);
+                if (p == 0d) continue;
+                if (precision == ProbabilityPrecision.DOUBLE) {
+                    out.putDouble(p);
+                } else {
+                    out.putFloat((float) p);
+                }
+            }
+        }
+        out.flush();
+        outputStream.flush();
+    }
+
+    /**
+     * @return the indexes of the n-grams that a language of the data knows, in ascending order.
+     */
+    @NotNull
+    private static int[] knownGrams(@NotNull NgramFrequencyData data) {
+        int[] grams = new int[data.getNumGrams()];
+        int size = 0;
+        for (int gramIndex=0; gramIndex<grams.length; gramIndex++) {
+            if (data.isKnown(gramIndex)) {
+                grams[size++] = gramIndex;
+            }
+        }
+        return (size == grams.length) ? grams : Arrays.copyOf(grams, size);
+    }
+
+    /**
+     * Writes the data to a file, overwriting it if it exists.
+     * @throws java.io.IOException
+     */
+    public void write(@NotNull NgramFrequencyData data, @NotNull File file) throws IOException {
+        try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(file))) {
+            write(data, outputStream);
+        }
+    }
+
+    /**
+     * Computes the data from the profiles, and writes it to a file.
+     * @param gramLengths for example [1,2,3]
+     * @throws java.io.IOException
+     * @see NgramFrequencyData#create
+     */
+    public void write(@NotNull Collection<LanguageProfile> languageProfiles, @NotNull Collection<Integer> gramLengths,
+                      @NotNull File file) throws IOException {
+        write(NgramFrequencyData.create(languageProfiles, gramLengths), file);
+    }
+
+
+    /**
+     * Buffers the writes to the channel, and knows the position in the output.
+     */
+    private static final class BinaryOutput {
+
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(BYTE_ORDER);
+        private long flushed = 0;
+
+        BinaryOutput(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        void putInt(int value) throws IOException {
+            ensureRemaining(4);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensureRemaining(8);
+            buffer.putLong(value);
+        }
+
+        void putChar(char value) throws IOException {
+            ensureRemaining(2);
+            buffer.putChar(value);
+        }
+
+        void putFloat(float value) throws IOException {
+            ensureRemaining(4);
+            buffer.putFloat(value);
+        }
+
+        void putDouble(double value) throws IOException {
+            ensureRemaining(8);
+            buffer.putDouble(value);
+        }
+
+        void putString(String string) throws IOException {
+            putInt(string.length());
+            for (int i=0; i<string.length(); i++) {
+                putChar(string.charAt(i));
+            }
+        }
+
+        /**
+         * Pads with zero bytes until the position is a multiple of the alignment.
+         */
+        void align(int alignment) throws IOException {
+            while ((flushed + buffer.position()) % alignment != 0) {
+                ensureRemaining(1);
+                buffer.put((byte) 0);
+            }
+        }
+
+        private void ensureRemaining(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            //the casts keep this working on Java 8, where ByteBuffer does not override flip() and clear().
+            ((Buffer) buffer).flip();
+            flushed += buffer.remaining();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            ((Buffer) buffer).clear();
+        }
+    }
+
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.optimaize.langdetect;
+
+import com.optimaize.langdetect.ngram.PackedNgram;
+
+import java.util.Arrays;
+
+/**
+ * Assigns a dense index 0-n to {@link PackedNgram packed n-grams}, in the order they are added.
+ *
+ * <p>Open addressing with linear probing on primitive arrays. No objects are created per gram, which is
+ * the point of this class compared to a {@code HashMap<String,Integer>}.</p>
+ *
+ * <p>This class is mutable and not thread-safe. Once filled it can be shared for reading.</p>
+ */
+final class PackedNgramIndex {
+
+    /**
+     * A packed gram is never 0, so this marks a free slot.
+     */
+    private static final long FREE = 0L;
+
+    /**
+     * Slots: the packed gram, or FREE.
+     */
+    private long[] slotKeys;
+    /**
+     * Slots: the index of the gram in slotKeys at the same position.
+     */
+    private int[] slotValues;
+    /**
+     * Key = index, value = packed gram.
+     */
+    private long[] keys;
+    private int size;
+    private int mask;
+
+    /**
+     * @param expectedSize how many grams will be added. More is fine, it grows.
+     */
+    PackedNgramIndex(int expectedSize) {
+        int capacity = tableSizeFor(expectedSize);
+        this.slotKeys = new long[capacity];
+        this.slotValues = new int[capacity];
+        this.keys = new long[Math.max(expectedSize, 16)];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * At most half full, that keeps the probe sequences short.
+     */
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = 16;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int hash(long packedGram) {
+        long h = packedGram * 0x9E3779B97F4A7C15L;
+        return (int)(h ^ (h >>> 32));
+    }
+
+    /**
+     * @return the index, or -1 if not contained.
+     */
+    int get(long packedGram) {
+        int slot = hash(packedGram) & mask;
+        while (true) {
+            long key = slotKeys[slot];
+            if (key == packedGram) return slotValues[slot];
+            if (key == FREE) return -1;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * @return the index of the gram, a new one if it was not contained yet.
+     */
+    int add(long packedGram) {
+        assert packedGram != FREE;
+        int slot = hash(packedGram) & mask;
+        while (true) {
+            long key = slotKeys[slot];
+            if (key == packedGram) return slotValues[slot];
+            if (key == FREE) break;
+            slot = (slot + 1) & mask;
+        }
+        int index = size;
+        if (index == keys.length) {
+            keys = Arrays.copyOf(keys, keys.length * 2);
+        }
+        keys[index] = packedGram;
+        slotKeys[slot] = packedGram;
+        slotValues[slot] = index;
+        size++;
+        if (size * 2 > slotKeys.length) {
+            rehash(slotKeys.length * 2);
+        }
+        return index;
+    }
+
+    private void rehash(int capacity) {
+        slotKeys = new long[capacity];
+        slotValues = new int[capacity];
+        mask = capacity - 1;
+        for (int index=0; index<size; index++) {
+            int slot = hash(keys[index]) & mask;
+            while (slotKeys[slot] != FREE) {
+                slot = (slot + 1) & mask;
+            }
+            slotKeys[slot] = keys[index];
+            slotValues[slot] = index;
+        }
+    }
+
+    /**
+     * @param index 0 to size()-1
+     */
+    long keyAt(int index) {
+        assert index < size;
+        return keys[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Removes all grams, keeps the allocated memory for reuse.
+     */
+    void clear() {
+        if (size == 0) return;
+        Arrays.fill(slotKeys, FREE);
+        size = 0;
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.optimaize.langdetect;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The loops over all languages that the detector runs for every n-gram.
+ *
+ * <p>There is a {@link ScalarProbabilityKernel plain Java} implementation, and on Java 17+ a SIMD one that uses
+ * the incubating Vector API. The SIMD one is shipped in the multi-release part of the jar
+ * ({@code META-INF/versions/17}), and is only used when the JVM runs with
+ * {@code --add-modules jdk.incubator.vector}. Otherwise, and on older JVMs, the scalar one is used.</p>
+ *
+ * <p>Implementations are stateless and thus thread-safe.</p>
+ */
+abstract class ProbabilityKernel {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProbabilityKernel.class);
+
+    private static final String VECTOR_KERNEL_CLASS = "com.optimaize.langdetect.VectorProbabilityKernel";
+
+    private static final ProbabilityKernel INSTANCE = load();
+
+    /**
+     * @return the best implementation available in this JVM.
+     */
+    @NotNull
+    static ProbabilityKernel getInstance() {
+        return INSTANCE;
+    }
+
+    private static ProbabilityKernel load() {
+        try {
+            ProbabilityKernel kernel = (ProbabilityKernel) Class.forName(VECTOR_KERNEL_CLASS).getDeclaredConstructor().newInstance();
+            logger.debug("Using the SIMD probability kernel: {}", kernel);
+            return kernel;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            //not there before Java 17, and can't be loaded without the incubator module.
+            logger.debug("Using the scalar probability kernel, the SIMD one is not available: {}", e.toString());
+            return new ScalarProbabilityKernel();
+        }
+    }
+
+
+    /**
+     * For each language i: {@code prob[i] *= (weight + matrix[offset + i])}, count times.
+     * @param count 1-n
+     */
+    abstract void multiply(@NotNull double[] prob, @NotNull double[] matrix, int offset, double weight, int count);
+
+    /**
+     * Same as {@link #multiply(double[], double[], int, double, int)} for a
+     * {@link ProbabilityPrecision#FLOAT float} matrix.
+     * A plain loop here, implementations may do better.
+     */
+    void multiply(@NotNull double[] prob, @NotNull float[] matrix, int offset, double weight, int count) {
+        for (int i=0; i<prob.length; ++i) {
+            double factor = weight + matrix[offset + i];
+            for (int amount=0; amount<count; amount++) {
+                prob[i] *= factor;
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #multiply(double[], double[], int, double, int)} for a
+     * {@link ProbabilityPrecision#LOG16 quantized} matrix: the value is {@code decode[code & 0xFFFF]}.
+     */
+    void multiply(@NotNull double[] prob, @NotNull short[] matrix, @NotNull double[] decode, int offset, double weight, int count) {
+        for (int i=0; i<prob.length; ++i) {
+            double factor = weight + decode[matrix[offset + i] & 0xFFFF];
+            for (int amount=0; amount<count; amount++) {
+                prob[i] *= factor;
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #multiply(double[], double[], int, double, int)} for a
+     * {@link ProbabilityPrecision#LOG8 quantized} matrix: the value is {@code decode[code & 0xFF]}.
+     */
+    void multiply(@NotNull double[] prob, @NotNull byte[] matrix, @NotNull double[] decode, int offset, double weight, int count) {
+        for (int i=0; i<prob.length; ++i) {
+            double factor = weight + decode[matrix[offset + i] & 0xFF];
+            for (int amount=0; amount<count; amount++) {
+                prob[i] *= factor;
+            }
+        }
+    }
+
+    /**
+     * For each language i: {@code score[i] += factor * matrix[offset + i]}.
+     */
+    abstract void addScaled(@NotNull double[] score, @NotNull double[] matrix, int offset, double factor);
+
+    /**
+     * Same as {@link com.optimaize.langdetect.cybozu.util.Util#normalizeProb}.
+     * The sum may be computed in a different order, so the last bits may differ.
+     * @return maximum of probabilities
+     */
+    abstract double normalize(@NotNull double[] prob);
+
+}
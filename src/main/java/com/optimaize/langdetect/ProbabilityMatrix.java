@@ -0,0 +1,281 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.optimaize.langdetect;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The probabilities per n-gram and language of {@link NgramFrequencyData}, in one of the
+ * {@link ProbabilityPrecision storage precisions}.
+ *
+ * <p>Same layout in all variants: the value of the n-gram with index i for the language with index j is at
+ * position {@code i * numLanguages + j}.</p>
+ *
+ * <p>Immutable once created.</p>
+ */
+abstract class ProbabilityMatrix {
+
+    /**
+     * @param values the exact probabilities, in the layout described above. Not modified.
+     */
+    @NotNull
+    static ProbabilityMatrix create(@NotNull double[] values, @NotNull ProbabilityPrecision precision) {
+        switch (precision) {
+            case DOUBLE:
+                return new DoubleMatrix(values);
+            case FLOAT:
+                return new FloatMatrix(values);
+            case LOG16:
+                return new Log16Matrix(values);
+            case LOG8:
+                return new Log8Matrix(values);
+            default:
+                throw new IllegalArgumentException("Unsupported precision: "+precision);
+        }
+    }
+
+    @NotNull
+    abstract ProbabilityPrecision getPrecision();
+
+    /**
+     * @return the number of values.
+     */
+    abstract int size();
+
+    /**
+     * @return the value at that position, as stored (thus maybe rounded).
+     */
+    abstract double get(int index);
+
+    /**
+     * For each language i: {@code prob[i] *= (weight + get(offset + i))}, count times.
+     */
+    abstract void multiply(@NotNull ProbabilityKernel kernel, @NotNull double[] prob, int offset, double weight, int count);
+
+    /**
+     * Same for some of the languages of the row only:
+     * {@code prob[i] *= (weight + get(offset + columns[i]))}, count times.
+     */
+    void multiply(@NotNull double[] prob, int offset, @NotNull int[] columns, double weight, int count) {
+        for (int i=0; i<prob.length; ++i) {
+            double factor = weight + get(offset + columns[i]);
+            for (int amount=0; amount<count; amount++) {
+                prob[i] *= factor;
+            }
+        }
+    }
+
+    /**
+     * @return the exact values if stored as doubles, otherwise a new array with the rounded values.
+     *         Don't modify it.
+     */
+    @NotNull
+    double[] toDoubles() {
+        double[] values = new double[size()];
+        for (int i=0; i<values.length; i++) {
+            values[i] = get(i);
+        }
+        return values;
+    }
+
+
+    static final class DoubleMatrix extends ProbabilityMatrix {
+        private final double[] values;
+
+        DoubleMatrix(@NotNull double[] values) {
+            this.values = values;
+        }
+
+        @NotNull @Override
+        ProbabilityPrecision getPrecision() {
+            return ProbabilityPrecision.DOUBLE;
+        }
+
+        @Override
+        int size() {
+            return values.length;
+        }
+
+        @Override
+        double get(int index) {
+            return values[index];
+        }
+
+        @Override
+        void multiply(@NotNull ProbabilityKernel kernel, @NotNull double[] prob, int offset, double weight, int count) {
+            kernel.multiply(prob, values, offset, weight, count);
+        }
+
+        @Override
+        void multiply(@NotNull double[] prob, int offset, @NotNull int[] columns, double weight, int count) {
+            for (int i=0; i<prob.length; ++i) {
+                double factor = weight + values[offset + columns[i]];
+                for (int amount=0; amount<count; amount++) {
+                    prob[i] *= factor;
+                }
+            }
+        }
+
+        @NotNull @Override
+        double[] toDoubles() {
+            return values;
+        }
+    }
+
+    static final class FloatMatrix extends ProbabilityMatrix {
+        private final float[] values;
+
+        FloatMatrix(@NotNull double[] values) {
+            this.values = new float[values.length];
+            for (int i=0; i<values.length; i++) {
+                this.values[i] = (float) values[i];
+            }
+        }
+
+        @NotNull @Override
+        ProbabilityPrecision getPrecision() {
+            return ProbabilityPrecision.FLOAT;
+        }
+
+        @Override
+        int size() {
+            return values.length;
+        }
+
+        @Override
+        double get(int index) {
+            return values[index];
+        }
+
+        @Override
+        void multiply(@NotNull ProbabilityKernel kernel, @NotNull double[] prob, int offset, double weight, int count) {
+            kernel.multiply(prob, values, offset, weight, count);
+        }
+    }
+
+    /**
+     * Maps the logarithms of the non-zero probabilities evenly to the codes 1 to maxCode, 0 is for 0.
+     */
+    private static final class LogScale {
+        private final double minLog;
+        private final double step;
+        private final int maxCode;
+
+        LogScale(@NotNull double[] values, int maxCode) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (double value : values) {
+                if (value > 0d) {
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+            }
+            this.minLog = (min == Double.POSITIVE_INFINITY) ? 0d : Math.log(min);
+            double range = (min == Double.POSITIVE_INFINITY) ? 0d : Math.log(max) - minLog;
+            this.step = (range > 0d) ? range / (maxCode - 1) : 1d;
+            this.maxCode = maxCode;
+        }
+
+        int encode(double value) {
+            if (value <= 0d) return 0;
+            long code = 1 + Math.round((Math.log(value) - minLog) / step);
+            return (int) Math.max(1, Math.min(maxCode, code));
+        }
+
+        /**
+         * @return the value per code.
+         */
+        double[] decodeTable() {
+            double[] table = new double[maxCode + 1];
+            for (int code=1; code<=maxCode; code++) {
+                table[code] = Math.exp(minLog + (code - 1) * step);
+            }
+            return table;
+        }
+    }
+
+    static final class Log16Matrix extends ProbabilityMatrix {
+        private final short[] codes;
+        /**
+         * 512KB, only the entries of the common probabilities are used much.
+         */
+        private final double[] decode;
+
+        Log16Matrix(@NotNull double[] values) {
+            LogScale scale = new LogScale(values, 0xFFFF);
+            this.codes = new short[values.length];
+            for (int i=0; i<values.length; i++) {
+                codes[i] = (short) scale.encode(values[i]);
+            }
+            this.decode = scale.decodeTable();
+        }
+
+        @NotNull @Override
+        ProbabilityPrecision getPrecision() {
+            return ProbabilityPrecision.LOG16;
+        }
+
+        @Override
+        int size() {
+            return codes.length;
+        }
+
+        @Override
+        double get(int index) {
+            return decode[codes[index] & 0xFFFF];
+        }
+
+        @Override
+        void multiply(@NotNull ProbabilityKernel kernel, @NotNull double[] prob, int offset, double weight, int count) {
+            kernel.multiply(prob, codes, decode, offset, weight, count);
+        }
+    }
+
+    static final class Log8Matrix extends ProbabilityMatrix {
+        private final byte[] codes;
+        private final double[] decode;
+
+        Log8Matrix(@NotNull double[] values) {
+            LogScale scale = new LogScale(values, 0xFF);
+            this.codes = new byte[values.length];
+            for (int i=0; i<values.length; i++) {
+                codes[i] = (byte) scale.encode(values[i]);
+            }
+            this.decode = scale.decodeTable();
+        }
+
+        @NotNull @Override
+        ProbabilityPrecision getPrecision() {
+            return ProbabilityPrecision.LOG8;
+        }
+
+        @Override
+        int size() {
+            return codes.length;
+        }
+
+        @Override
+        double get(int index) {
+            return decode[codes[index] & 0xFF];
+        }
+
+        @Override
+        void multiply(@NotNull ProbabilityKernel kernel, @NotNull double[] prob, int offset, double weight, int count) {
+            kernel.multiply(prob, codes, decode, offset, weight, count);
+        }
+    }
+
+}
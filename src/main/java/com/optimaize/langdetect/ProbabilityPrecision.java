@@ -0,0 +1,62 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.optimaize.langdetect;
+
+/**
+ * How the n-gram probabilities of {@link NgramFrequencyData} are stored in memory.
+ *
+ * <p>There is one value per n-gram and language, most of them 0. For the built-in languages that's a few
+ * million values, so the size of a value decides how much memory a set of languages takes, and how much of
+ * it fits into the CPU caches while detecting.</p>
+ *
+ * <p>The quantized variants store the logarithm of the probability on an evenly spaced scale between the
+ * smallest and largest probability of the table, 0 stays exactly 0.</p>
+ *
+ * @see LanguageDetectorBuilder#probabilityPrecision
+ */
+public enum ProbabilityPrecision {
+
+    /**
+     * 8 bytes per value, exact. That's the old behavior.
+     */
+    DOUBLE(8),
+
+    /**
+     * 4 bytes per value, a relative error below 0.0000001.
+     */
+    FLOAT(4),
+
+    /**
+     * 2 bytes per value, 65535 steps. A relative error below 0.0001 for the built-in languages.
+     */
+    LOG16(2),
+
+    /**
+     * 1 byte per value, 255 steps. A relative error of about 2% for the built-in languages.
+     */
+    LOG8(1);
+
+    private final int bytesPerValue;
+
+    ProbabilityPrecision(int bytesPerValue) {
+        this.bytesPerValue = bytesPerValue;
+    }
+
+    public int getBytesPerValue() {
+        return bytesPerValue;
+    }
+
+}
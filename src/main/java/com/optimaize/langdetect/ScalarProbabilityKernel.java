@@ -0,0 +1,51 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.optimaize.langdetect;
+
+import com.optimaize.langdetect.cybozu.util.Util;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The plain Java {@link ProbabilityKernel}, works on any JVM.
+ */
+final class ScalarProbabilityKernel extends ProbabilityKernel {
+
+    @Override
+    void multiply(@NotNull double[] prob, @NotNull double[] matrix, int offset, double weight, int count) {
+        for (int i=0; i<prob.length; ++i) {
+            for (int amount=0; amount<count; amount++) {
+                prob[i] *= (weight + matrix[offset + i]);
+            }
+        }
+    }
+
+    @Override
+    void addScaled(@NotNull double[] score, @NotNull double[] matrix, int offset, double factor) {
+        for (int i=0; i<score.length; ++i) {
+            score[i] += factor * matrix[offset + i];
+        }
+    }
+
+    @Override
+    double normalize(@NotNull double[] prob) {
+        return Util.normalizeProb(prob);
+    }
+
+    @Override
+    public String toString() {
+        return "ScalarProbabilityKernel";
+    }
+
+}
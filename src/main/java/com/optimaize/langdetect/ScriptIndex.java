@@ -0,0 +1,209 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.optimaize.langdetect;
+
+import com.optimaize.langdetect.ngram.PackedNgram;
+import com.optimaize.langdetect.text.RemoveMinorityScriptsTextFilter;
+import com.optimaize.langdetect.text.UnicodeScripts;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Tells which languages a text can be in, by the scripts it's written in.
+ *
+ * <p>A language has a script if at least {@link #MIN_SCRIPT_SHARE} of its n-grams (by probability) have a
+ * character of it. The index is built once from the frequency data. For a text in Hangul or Thai only 1 or 2
+ * languages remain, instead of all.</p>
+ *
+ * <p>This class is thread-safe.</p>
+ */
+final class ScriptIndex {
+
+    /**
+     * The candidates for texts with more than one dominant script are cached, in this many slots.
+     */
+    private static final int MAX_CACHED_COMBINATIONS = 256;
+
+    /**
+     * The profiles come from Wikipedia, they have some n-grams of foreign names and quotes. With the built-in
+     * profiles a language has at most 0.7% of such n-grams in another script, but at least 1.3% in a script
+     * that's really used (Latin in Bulgarian and Thai, Han in Korean).
+     */
+    private static final double MIN_SCRIPT_SHARE = 0.01;
+
+    @NotNull
+    private final NgramFrequencyData data;
+    @NotNull
+    private final RemoveMinorityScriptsTextFilter dominantScripts;
+    /**
+     * Key = script ordinal, value = per language index whether it has that script. Null if none has it.
+     */
+    @NotNull
+    private final boolean[][] languagesOfScript;
+    /**
+     * Key = script ordinal, value = the candidates for a text in just that script.
+     * Null if no language or all languages have it.
+     */
+    @NotNull
+    private final LanguageCandidates[] byScript;
+    /**
+     * Key = script ordinal, value = its bit in the keys of byScripts, -1 if no language has it or there are
+     * more than 64 such scripts.
+     */
+    @NotNull
+    private final int[] bitOfScript;
+    /**
+     * Key = the bits of the scripts.
+     */
+    @NotNull
+    private final CandidatesCache byScripts = new CandidatesCache(MAX_CACHED_COMBINATIONS);
+    /**
+     * Stands for null in byScripts, where null means not cached.
+     */
+    @NotNull
+    private final LanguageCandidates noPruning;
+
+    /**
+     * Reads all n-grams of the data, and makes a {@link NgramFrequencyData#forLanguages view} per script
+     * that some languages have. Takes some 10 milliseconds, plus a few per view.
+     * @param minorityThreshold see {@link RemoveMinorityScriptsTextFilter#forThreshold}: a script with at most
+     *        this fraction of the characters of the most used one does not count.
+     */
+    ScriptIndex(@NotNull NgramFrequencyData data, double minorityThreshold) {
+        this.data = data;
+        this.dominantScripts = RemoveMinorityScriptsTextFilter.forThreshold(minorityThreshold);
+        int numLanguages = data.getLanguageList().size();
+        //key = script ordinal, value = per language the sum of the probabilities of the n-grams with that script.
+        double[][] shares = new double[UnicodeScripts.COUNT][];
+        double[] totals = new double[numLanguages];
+        int[] scripts = new int[PackedNgram.MAX_LENGTH];
+        for (int gramIndex=0; gramIndex<data.getNumGrams(); gramIndex++) {
+            int numScripts = scriptsOf(gramIndex, scripts);
+            if (numScripts > scripts.length) {
+                scripts = new int[numScripts];
+                numScripts = scriptsOf(gramIndex, scripts);
+            }
+            for (int k=0; k<numScripts; k++) {
+                if (shares[scripts[k]] == null) shares[scripts[k]] = new double[numLanguages];
+            }
+            for (int j=0; j<numLanguages; j++) {
+                double p = data.getProbability(gramIndex, j);
+                if (p == 0d) continue;
+                totals[j] += p;
+                for (int k=0; k<numScripts; k++) {
+                    shares[scripts[k]][j] += p;
+                }
+            }
+        }
+        this.languagesOfScript = new boolean[UnicodeScripts.COUNT][];
+        for (int script=0; script<UnicodeScripts.COUNT; script++) {
+            if (shares[script] == null) continue;
+            for (int j=0; j<numLanguages; j++) {
+                if (shares[script][j] != 0d && shares[script][j] >= MIN_SCRIPT_SHARE * totals[j]) {
+                    if (languagesOfScript[script] == null) languagesOfScript[script] = new boolean[numLanguages];
+                    languagesOfScript[script][j] = true;
+                }
+            }
+        }
+        this.noPruning = new LanguageCandidates(new int[0], data);
+        this.byScript = new LanguageCandidates[UnicodeScripts.COUNT];
+        this.bitOfScript = new int[UnicodeScripts.COUNT];
+        int numBits = 0;
+        for (int script=0; script<UnicodeScripts.COUNT; script++) {
+            bitOfScript[script] = -1;
+            if (languagesOfScript[script] != null) {
+                byScript[script] = LanguageCandidates.of(data, languagesOfScript[script]);
+                if (numBits < Long.SIZE) bitOfScript[script] = numBits++;
+            }
+        }
+    }
+
+    /**
+     * Without creating a String for the n-gram, most are packed.
+     * @param scripts filled with the distinct scripts of the n-gram, without COMMON, INHERITED and UNKNOWN.
+     * @return how many, may be more than scripts has room for (then it's incomplete).
+     */
+    private int scriptsOf(int gramIndex, int[] scripts) {
+        if (gramIndex < data.getNumPackedGrams()) {
+            long gram = data.getPackedGram(gramIndex);
+            int numScripts = 0;
+            for (int i=0; i<PackedNgram.length(gram); i++) {
+                numScripts = addScript(UnicodeScripts.ordinalOf(PackedNgram.charAt(gram, i)), scripts, numScripts);
+            }
+            return numScripts;
+        }
+        String gram = data.getGram(gramIndex);
+        int numScripts = 0;
+        for (int i=0; i<gram.length(); i++) {
+            numScripts = addScript(UnicodeScripts.ordinalOf(gram.charAt(i)), scripts, numScripts);
+        }
+        return numScripts;
+    }
+
+    private static int addScript(int script, int[] scripts, int numScripts) {
+        if (script == UnicodeScripts.COMMON || script == UnicodeScripts.INHERITED || script == UnicodeScripts.UNKNOWN) return numScripts;
+        for (int k=0; k<Math.min(numScripts, scripts.length); k++) {
+            if (scripts[k] == script) return numScripts;
+        }
+        if (numScripts < scripts.length) scripts[numScripts] = script;
+        return numScripts + 1;
+    }
+
+    /**
+     * @param counts a buffer of {@link UnicodeScripts#COUNT}, overwritten.
+     * @return null to score all languages: if the text has no dominant script, none of its dominant scripts
+     *         is known by a language, or all languages have one of them.
+     */
+    @Nullable
+    LanguageCandidates candidates(@NotNull CharSequence text, @NotNull int[] counts) {
+        int numScripts = dominantScripts.dominantScripts(text, counts);
+        if (numScripts == 0) return null;
+        //the scripts that no language has don't change the candidates.
+        long key = 0L;
+        int numKnown = 0;
+        int known = -1;
+        boolean cacheable = true;
+        for (int script=0; script<counts.length; script++) {
+            if (counts[script] != 0 && languagesOfScript[script] != null) {
+                numKnown++;
+                known = script;
+                if (bitOfScript[script] == -1) {
+                    cacheable = false;
+                } else {
+                    key |= 1L << bitOfScript[script];
+                }
+            }
+        }
+        if (numKnown == 0) return null;
+        if (numKnown == 1) return byScript[known];
+        LanguageCandidates candidates = cacheable ? byScripts.get(key) : null;
+        if (candidates == null) {
+            boolean[] union = new boolean[data.getLanguageList().size()];
+            for (int script=0; script<counts.length; script++) {
+                if (counts[script] != 0 && languagesOfScript[script] != null) {
+                    for (int j=0; j<union.length; j++) {
+                        union[j] |= languagesOfScript[script][j];
+                    }
+                }
+            }
+            candidates = LanguageCandidates.of(data, union);
+            if (candidates == null) candidates = noPruning;
+            if (cacheable) byScripts.put(key, candidates);
+        }
+        return (candidates == noPruning) ? null : candidates;
+    }
+
+}
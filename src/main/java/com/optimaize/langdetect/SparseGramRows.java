@@ -0,0 +1,232 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.optimaize.langdetect;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The n-grams of {@link NgramFrequencyData} that only a few languages know, stored as (language, probability)
+ * pairs instead of a full row with a value for every language. The other n-grams keep their row in the
+ * dense matrix.
+ *
+ * <p>Most n-grams are known by one or two languages only: of the n-grams of the built-in languages, 77% are
+ * known by a single language, and 96% by 16 languages or less.</p>
+ *
+ * <p>Immutable once created.</p>
+ */
+final class SparseGramRows {
+
+    /**
+     * With a smaller weight the deferred factor could underflow, and the factors of the listed
+     * languages overflow, before the next normalization. Also, there's no dividing by 0.
+     */
+    private static final double MIN_DEFERRED_WEIGHT = 1e-20;
+    /**
+     * Same, for n-grams occurring this often in a text.
+     */
+    private static final int MAX_DEFERRED_COUNT = 4;
+
+    private final int maxLanguages;
+    /**
+     * Key = gram index, value = the row in the dense matrix, or -1 if the n-gram is stored here.
+     */
+    @NotNull
+    private final int[] denseRows;
+    private final int numDenseRows;
+    /**
+     * Key = gram index, the pairs of the n-gram are at start[gramIndex] to start[gramIndex+1]-1.
+     * Empty for the dense n-grams.
+     */
+    @NotNull
+    private final int[] start;
+    /**
+     * The language indexes of the pairs, ascending per n-gram.
+     */
+    @NotNull
+    private final char[] languages;
+    @NotNull
+    private final ProbabilityMatrix values;
+
+    /**
+     * @param probabilities all values, one row of numLanguages values per n-gram.
+     * @param maxLanguages the n-grams known by at most so many languages are stored here.
+     * @param precision for the values stored here.
+     */
+    SparseGramRows(@NotNull double[] probabilities, int numLanguages, int maxLanguages, @NotNull ProbabilityPrecision precision) {
+        if (maxLanguages < 1) throw new IllegalArgumentException("maxLanguages must be >= 1, but was: "+maxLanguages);
+        if (numLanguages > Character.MAX_VALUE) throw new IllegalArgumentException("Too many languages: "+numLanguages);
+        int numGrams = probabilities.length / numLanguages;
+        this.maxLanguages = maxLanguages;
+        this.denseRows = new int[numGrams];
+        this.start = new int[numGrams + 1];
+        int numDenseRows = 0;
+        int numPairs = 0;
+        for (int gramIndex=0; gramIndex<numGrams; gramIndex++) {
+            int known = countNonZero(probabilities, gramIndex * numLanguages, numLanguages);
+            if (known > maxLanguages) {
+                denseRows[gramIndex] = numDenseRows++;
+            } else {
+                denseRows[gramIndex] = -1;
+                numPairs += known;
+            }
+            start[gramIndex + 1] = numPairs;
+        }
+        this.numDenseRows = numDenseRows;
+        this.languages = new char[numPairs];
+        double[] pairValues = new double[numPairs];
+        int pair = 0;
+        for (int gramIndex=0; gramIndex<numGrams; gramIndex++) {
+            if (denseRows[gramIndex] != -1) continue;
+            int offset = gramIndex * numLanguages;
+            for (int i=0; i<numLanguages; i++) {
+                if (probabilities[offset + i] != 0d) {
+                    languages[pair] = (char) i;
+                    pairValues[pair] = probabilities[offset + i];
+                    pair++;
+                }
+            }
+        }
+        this.values = ProbabilityMatrix.create(pairValues, precision);
+    }
+
+    private static int countNonZero(double[] probabilities, int offset, int length) {
+        int count = 0;
+        for (int i=0; i<length; i++) {
+            if (probabilities[offset + i] != 0d) count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return the rows of the n-grams that are not stored here, in the same order, for the dense matrix.
+     */
+    @NotNull
+    double[] denseValues(@NotNull double[] probabilities, int numLanguages) {
+        double[] dense = new double[numDenseRows * numLanguages];
+        for (int gramIndex=0; gramIndex<denseRows.length; gramIndex++) {
+            int row = denseRows[gramIndex];
+            if (row != -1) {
+                System.arraycopy(probabilities, gramIndex * numLanguages, dense, row * numLanguages, numLanguages);
+            }
+        }
+        return dense;
+    }
+
+    int getMaxLanguages() {
+        return maxLanguages;
+    }
+
+    /**
+     * @return the row in the dense matrix, or -1 if the n-gram is stored here.
+     */
+    int getDenseRow(int gramIndex) {
+        return denseRows[gramIndex];
+    }
+
+    /**
+     * @param gramIndex an n-gram stored here.
+     */
+    double get(int gramIndex, int languageIndex) {
+        for (int k=start[gramIndex]; k<start[gramIndex + 1]; k++) {
+            if (languages[k] == languageIndex) return values.get(k);
+        }
+        return 0d;
+    }
+
+    /**
+     * @param gramIndex an n-gram stored here.
+     * @param languageOfColumn key = language index here, value = -1 for the languages not to consider.
+     * @return true if one of the other languages knows the n-gram.
+     */
+    boolean isKnownByAny(int gramIndex, @NotNull int[] languageOfColumn) {
+        for (int k=start[gramIndex]; k<start[gramIndex + 1]; k++) {
+            if (languageOfColumn[languages[k]] != -1) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the largest value stored here, 0 if none.
+     */
+    double getMaxValue() {
+        double max = 0d;
+        for (int k=0; k<values.size(); k++) {
+            max = Math.max(max, values.get(k));
+        }
+        return max;
+    }
+
+    /**
+     * Same as {@link ProbabilityKernel#multiply} with the full row of the n-gram, but only touches the
+     * languages that know the n-gram.
+     *
+     * <p>All languages are multiplied by {@code weight}, the listed ones by {@code weight + p}. Instead, the
+     * listed ones are multiplied by {@code (weight + p) / weight}, and the factor {@code weight} that all
+     * languages have in common is returned for the caller to apply later, once for many n-grams. A
+     * normalization makes it disappear anyway. Up to rounding it's the same result.</p>
+     *
+     * <p>For a subset of the languages, prob has one value per entry in columns, and languageOfColumn is
+     * the reverse mapping.</p>
+     *
+     * @param gramIndex an n-gram stored here.
+     * @param columns null for all languages, else key = index in prob, value = language index here.
+     * @param languageOfColumn null for all languages, else key = language index here, value = index in prob or -1.
+     * @return the factor that still has to be applied to all languages, 1 if none.
+     */
+    double multiply(@NotNull double[] prob, int gramIndex, double weight, int count,
+                    @Nullable int[] columns, @Nullable int[] languageOfColumn) {
+        int from = start[gramIndex];
+        int to = start[gramIndex + 1];
+        if (columns != null && (weight < MIN_DEFERRED_WEIGHT || count > MAX_DEFERRED_COUNT)) {
+            for (int i=0; i<prob.length; i++) {
+                double factor = weight + get(gramIndex, columns[i]);
+                for (int amount=0; amount<count; amount++) {
+                    prob[i] *= factor;
+                }
+            }
+            return 1d;
+        }
+        if (weight < MIN_DEFERRED_WEIGHT || count > MAX_DEFERRED_COUNT) {
+            //the full row, as the dense matrix does it.
+            int k = from;
+            for (int i=0; i<prob.length; i++) {
+                double factor = weight;
+                if (k < to && languages[k] == i) {
+                    factor += values.get(k++);
+                }
+                for (int amount=0; amount<count; amount++) {
+                    prob[i] *= factor;
+                }
+            }
+            return 1d;
+        }
+        for (int k=from; k<to; k++) {
+            int i = (languageOfColumn == null) ? languages[k] : languageOfColumn[languages[k]];
+            if (i == -1) continue;
+            double factor = 1d + values.get(k) / weight;
+            for (int amount=0; amount<count; amount++) {
+                prob[i] *= factor;
+            }
+        }
+        double deferred = weight;
+        for (int amount=1; amount<count; amount++) {
+            deferred *= weight;
+        }
+        return deferred;
+    }
+
+}
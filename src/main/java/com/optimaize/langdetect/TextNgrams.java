@@ -0,0 +1,256 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.optimaize.langdetect;
+
+import com.optimaize.langdetect.ngram.NgramExtractor;
+import com.optimaize.langdetect.ngram.NgramVisitor;
+import com.optimaize.langdetect.ngram.PackedNgram;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The n-grams of a text, as gram indexes of a {@link NgramFrequencyData}.
+ *
+ * <p>Either as a sequence in the same order as {@link NgramExtractor#extractGrams} (all grams of the first gram
+ * length, then all of the second, ...), or counted with each distinct gram once, in the same order as
+ * {@link NgramExtractor#extractCountedGrams}. Keeping that order means the detector produces the same results
+ * as when it worked on the Strings.</p>
+ *
+ * <p>If the extractor {@link NgramExtractor#canPack() can pack} its grams then the text is walked once with
+ * {@link NgramExtractor#visitGrams} and no objects are created per gram. Otherwise it falls back to the
+ * String grams.</p>
+ *
+ * <p>This class is mutable and not thread-safe. An instance can be reused for the next text.</p>
+ */
+final class TextNgrams implements NgramVisitor {
+
+    @NotNull
+    private final NgramFrequencyData ngramFrequencyData;
+
+    private boolean counting;
+    /**
+     * Counting mode: how many distinct grams are collected at most, 0 for no limit.
+     */
+    private int maxDistinct;
+
+    /**
+     * How many grams the text had, including those that no language knows.
+     */
+    private int numGramsSeen;
+
+    /**
+     * Key = gram length, value = the bucket for it (the position in the extractor's gram lengths).
+     */
+    private final int[] bucketByLength = new int[PackedNgram.MAX_LENGTH + 1];
+    /**
+     * One bucket per gram length, with the grams in the order they occurred in the text.
+     * Sequence mode: the gram index, -1 for unknown grams.
+     * Counting mode: the distinct gram ordinal.
+     */
+    private int[][] buckets = new int[0][];
+    private int[] bucketSizes = new int[0];
+
+    /**
+     * Counting mode: assigns the distinct gram ordinals.
+     */
+    private final PackedNgramIndex distinctGrams = new PackedNgramIndex(64);
+    /**
+     * Counting mode: key = distinct gram ordinal.
+     */
+    private int[] distinctGramIndexes = new int[64];
+    private int[] distinctCounts = new int[64];
+
+    /**
+     * The result, in the final order.
+     */
+    private int[] gramIndexes = new int[64];
+    private int[] counts = new int[64];
+    private int size;
+
+
+    TextNgrams(@NotNull NgramFrequencyData ngramFrequencyData) {
+        this.ngramFrequencyData = ngramFrequencyData;
+    }
+
+
+    /**
+     * Collects all grams in sequence, {@link #count} is 1 for each.
+     * Grams unknown to all languages are included with the gram index -1.
+     */
+    void collect(@NotNull CharSequence text, @NotNull NgramExtractor ngramExtractor) {
+        if (ngramExtractor.canPack()) {
+            reset(false, ngramExtractor.getGramLengths());
+            ngramExtractor.visitGrams(text, this);
+            flatten();
+        } else {
+            reset(false, null);
+            for (String gram : ngramExtractor.extractGrams(text)) {
+                numGramsSeen++;
+                add(ngramFrequencyData.getGramIndex(gram), 1);
+            }
+        }
+    }
+
+    /**
+     * Collects the distinct grams with their count.
+     * Grams unknown to all languages are left out.
+     */
+    void collectCounted(@NotNull CharSequence text, @NotNull NgramExtractor ngramExtractor) {
+        collectCounted(text, ngramExtractor, 0);
+    }
+
+    /**
+     * Same as {@link #collectCounted(CharSequence, NgramExtractor)}, but stops taking new distinct grams once it
+     * has maxDistinct of them. The ones it has are still counted until the end of the text.
+     *
+     * <p>The grams are taken in the order they first occur in the text, all gram lengths mixed. (For an
+     * extractor that can't pack its grams the order is that of {@link NgramExtractor#extractCountedGrams}.)</p>
+     *
+     * @param maxDistinct 0 for no limit
+     */
+    void collectCounted(@NotNull CharSequence text, @NotNull NgramExtractor ngramExtractor, int maxDistinct) {
+        this.maxDistinct = maxDistinct;
+        if (ngramExtractor.canPack()) {
+            reset(true, ngramExtractor.getGramLengths());
+            ngramExtractor.visitGrams(text, this);
+            flatten();
+        } else {
+            reset(true, null);
+            for (Map.Entry<String, Integer> entry : ngramExtractor.extractCountedGrams(text).entrySet()) {
+                numGramsSeen += entry.getValue();
+                if (maxDistinct > 0 && size == maxDistinct) continue;
+                int gramIndex = ngramFrequencyData.getGramIndex(entry.getKey());
+                if (gramIndex != -1) {
+                    add(gramIndex, entry.getValue());
+                }
+            }
+        }
+    }
+
+    private void reset(boolean counting, List<Integer> gramLengths) {
+        this.counting = counting;
+        numGramsSeen = 0;
+        size = 0;
+        Arrays.fill(bucketSizes, 0);
+        if (gramLengths != null) {
+            if (buckets.length < gramLengths.size()) {
+                buckets = Arrays.copyOf(buckets, gramLengths.size());
+                bucketSizes = new int[gramLengths.size()];
+            }
+            for (int i=0; i<gramLengths.size(); i++) {
+                bucketByLength[gramLengths.get(i)] = i;
+                if (buckets[i] == null) buckets[i] = new int[64];
+            }
+            distinctGrams.clear();
+        }
+    }
+
+    @Override
+    public void visit(long packedGram, int length, int position) {
+        numGramsSeen++;
+        int gramIndex = ngramFrequencyData.getGramIndex(packedGram);
+        if (!counting) {
+            addToBucket(bucketByLength[length], gramIndex);
+            return;
+        }
+        if (gramIndex == -1) return;
+        int numDistinct = distinctGrams.size();
+        int ordinal;
+        if (maxDistinct > 0 && numDistinct == maxDistinct) {
+            ordinal = distinctGrams.get(packedGram);
+            if (ordinal == -1) return; //no more new ones
+        } else {
+            ordinal = distinctGrams.add(packedGram);
+        }
+        if (ordinal == numDistinct) {
+            if (ordinal == distinctCounts.length) {
+                distinctGramIndexes = Arrays.copyOf(distinctGramIndexes, ordinal * 2);
+                distinctCounts = Arrays.copyOf(distinctCounts, ordinal * 2);
+            }
+            distinctGramIndexes[ordinal] = gramIndex;
+            distinctCounts[ordinal] = 1;
+            addToBucket(bucketByLength[length], ordinal);
+        } else {
+            distinctCounts[ordinal]++;
+        }
+    }
+
+    private void addToBucket(int bucket, int value) {
+        int[] values = buckets[bucket];
+        int bucketSize = bucketSizes[bucket];
+        if (bucketSize == values.length) {
+            values = Arrays.copyOf(values, bucketSize * 2);
+            buckets[bucket] = values;
+        }
+        values[bucketSize] = value;
+        bucketSizes[bucket] = bucketSize + 1;
+    }
+
+    /**
+     * Brings the bucket content into the final order.
+     */
+    private void flatten() {
+        for (int bucket=0; bucket<bucketSizes.length; bucket++) {
+            int[] values = buckets[bucket];
+            for (int i=0; i<bucketSizes[bucket]; i++) {
+                if (counting) {
+                    add(distinctGramIndexes[values[i]], distinctCounts[values[i]]);
+                } else {
+                    add(values[i], 1);
+                }
+            }
+        }
+    }
+
+    private void add(int gramIndex, int count) {
+        if (size == gramIndexes.length) {
+            gramIndexes = Arrays.copyOf(gramIndexes, size * 2);
+            counts = Arrays.copyOf(counts, size * 2);
+        }
+        gramIndexes[size] = gramIndex;
+        counts[size] = count;
+        size++;
+    }
+
+
+    /**
+     * @return true if the text had no grams at all, not even unknown ones.
+     */
+    boolean isEmpty() {
+        return numGramsSeen == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the gram index in the NgramFrequencyData, -1 for a gram that no language knows.
+     */
+    int gramIndex(int i) {
+        return gramIndexes[i];
+    }
+
+    /**
+     * @return 1-n
+     */
+    int count(int i) {
+        return counts[i];
+    }
+
+}
@@ -35,17 +35,21 @@ public class CharNormalizer {
      * @return Normalized character, the space to exclude the character.
      */
     public static char normalize(char ch){
-        //this is even cheaper than the hashmap lookup. because it covers most use cases, it's worth the check.
-        if (ch <= 127) { //ascii (basic latin)
-            if (ch < 'A' || (ch < 'a' && ch > 'Z') || ch > 'z') {
-                return ' ';
-            } else {
-                return ch;
-            }
-        }
+        char[] block = NORMALIZE_TABLE[ch >>> BLOCK_BITS];
+        return block == null ? ch : block[ch & BLOCK_MASK];
+    }
 
-        Character result = NORMALIZE_MAP.get(ch);
-        return result == null ? ch : result;
+    /**
+     * Same as {@link #normalize(char)} for a range of chars.
+     * @param dst receives the normalized chars at the same positions off to off+len-1. May be src itself.
+     */
+    public static void normalize(char[] src, int off, int len, char[] dst) {
+        int end = off + len;
+        for (int i=off; i<end; i++) {
+            char ch = src[i];
+            char[] block = NORMALIZE_TABLE[ch >>> BLOCK_BITS];
+            dst[i] = block == null ? ch : block[ch & BLOCK_MASK];
+        }
     }
 
     private static char normalize0(char ch){
@@ -75,11 +79,16 @@ public class CharNormalizer {
     }
 
     private static final String LATIN1_EXCLUDED = Messages.getString("NGram.LATIN1_EXCLUDE");
-    private static final Map<Character, Character> CJK_MAP = new HashMap<>();;
+    private static final Map<Character, Character> CJK_MAP = new HashMap<>();
+
+    private static final int BLOCK_BITS = 8;
+    private static final int BLOCK_MASK = (1 << BLOCK_BITS) - 1;
     /**
-     * Has mappings for overrides. What's not in the map means keep the original.
+     * The normalized char for each char, in blocks of 256 chars. A block is null if all its chars are kept
+     * as they are. That is the case for about half of the blocks, this saves memory compared to one flat
+     * array of 64k chars and is still just 2 array lookups.
      */
-    private static final Map<Character,Character> NORMALIZE_MAP = new HashMap<>();;
+    private static final char[][] NORMALIZE_TABLE = new char[1 << (16 - BLOCK_BITS)][];
 
     /**
      * CJK Kanji Normalization Mapping
@@ -225,7 +234,16 @@ public class CharNormalizer {
         for (int c=0;c<=65535;c++) {
             char x = normalize0((char)c);
             if(c != x){
-                NORMALIZE_MAP.put((char)c, x);
+                char[] block = NORMALIZE_TABLE[c >>> BLOCK_BITS];
+                if (block == null) {
+                    block = new char[BLOCK_MASK + 1];
+                    int first = c & ~BLOCK_MASK;
+                    for (int i=0; i<block.length; i++) {
+                        block[i] = (char)(first + i);
+                    }
+                    NORMALIZE_TABLE[c >>> BLOCK_BITS] = block;
+                }
+                block[c & BLOCK_MASK] = x;
             }
         }
     }
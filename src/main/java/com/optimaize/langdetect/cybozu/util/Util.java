@@ -97,6 +97,27 @@ public class Util {
     }
 
 
+    /**
+     * turn log probabilities into normalized probabilities, in place.
+     * A value of negative infinity becomes 0 (unless all are, then all become NaN as in normalizeProb()).
+     * @return maximum of probabilities
+     */
+    public static double normalizeLogProb(double[] logProb) {
+        double maxLog = Double.NEGATIVE_INFINITY;
+        for(int i=0;i<logProb.length;++i) {
+            if (logProb[i] > maxLog) maxLog = logProb[i];
+        }
+        double sump = 0;
+        for(int i=0;i<logProb.length;++i) {
+            double p = Math.exp(logProb[i] - maxLog);
+            logProb[i] = p;
+            sump += p;
+        }
+        for(int i=0;i<logProb.length;++i) logProb[i] /= sump;
+        return 1d / sump;
+    }
+
+
     public static String wordProbToString(double[] prob, List<LdLocale> langlist) {
         Formatter formatter = new Formatter();
         for(int j=0;j<prob.length;++j) {
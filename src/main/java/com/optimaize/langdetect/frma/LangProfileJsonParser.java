@@ -0,0 +1,256 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.optimaize.langdetect.frma;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Parses the json of a {@link com.optimaize.langdetect.cybozu.util.LangProfile} in a single pass over a Reader.
+ *
+ * <p>The input is read in chunks, the file is never held as a whole. The n-grams go directly into the
+ * freq map of the profile, with one String per gram and no other objects created per entry.</p>
+ *
+ * <p>Understands standard json, including escaped chars in the strings. Keys other than
+ * "freq", "n_words" and "name" are skipped.</p>
+ *
+ * <p>This class is mutable and not thread-safe, one instance per read.</p>
+ */
+final class LangProfileJsonParser {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    @NotNull
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int pos = 0;
+    private int limit = 0;
+    /**
+     * How many chars were consumed before the current buffer, for error messages.
+     */
+    private long bufferStart = 0;
+    private final StringBuilder stringBuilder = new StringBuilder();
+
+    LangProfileJsonParser(@NotNull Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * @throws IOException on read errors, or if the input is not valid json.
+     */
+    @SuppressWarnings("deprecation") //the LangProfileReader api returns the old type, it's only filled here.
+    @NotNull
+    com.optimaize.langdetect.cybozu.util.LangProfile parse() throws IOException {
+        com.optimaize.langdetect.cybozu.util.LangProfile langProfile = new com.optimaize.langdetect.cybozu.util.LangProfile();
+        expect('{');
+        if (!consumeIf('}')) {
+            do {
+                String key = readString();
+                expect(':');
+                switch (key) {
+                    case "freq":
+                        readFreq(langProfile.getFreq());
+                        break;
+                    case "n_words":
+                        langProfile.setNWords(readIntArray());
+                        break;
+                    case "name":
+                        langProfile.setName(readString());
+                        break;
+                    default:
+                        skipValue();
+                }
+            } while (consumeIf(','));
+            expect('}');
+        }
+        return langProfile;
+    }
+
+    private void readFreq(Map<String, Integer> freq) throws IOException {
+        expect('{');
+        if (consumeIf('}')) return;
+        do {
+            String gram = readString();
+            expect(':');
+            freq.put(gram, readInt());
+        } while (consumeIf(','));
+        expect('}');
+    }
+
+    private int[] readIntArray() throws IOException {
+        expect('[');
+        int[] values = new int[4];
+        int size = 0;
+        if (!consumeIf(']')) {
+            do {
+                if (size == values.length) values = Arrays.copyOf(values, size * 2);
+                values[size++] = readInt();
+            } while (consumeIf(','));
+            expect(']');
+        }
+        return Arrays.copyOf(values, size);
+    }
+
+    private int readInt() throws IOException {
+        skipWhitespace();
+        boolean negative = consumeIf('-');
+        long value = 0;
+        int digits = 0;
+        while (fill() && buffer[pos] >= '0' && buffer[pos] <= '9') {
+            value = value * 10 + (buffer[pos++] - '0');
+            if (value > (long) Integer.MAX_VALUE + 1) throw error("Number too large");
+            digits++;
+        }
+        if (digits == 0) throw error("Expected a number");
+        if (negative) value = -value;
+        if (value > Integer.MAX_VALUE) throw error("Number too large");
+        return (int) value;
+    }
+
+    private String readString() throws IOException {
+        expect('"');
+        stringBuilder.setLength(0);
+        while (true) {
+            if (!fill()) throw error("Unterminated string");
+            char c = buffer[pos++];
+            if (c == '"') {
+                return stringBuilder.toString();
+            } else if (c == '\\') {
+                stringBuilder.append(readEscaped());
+            } else {
+                stringBuilder.append(c);
+            }
+        }
+    }
+
+    private char readEscaped() throws IOException {
+        if (!fill()) throw error("Unterminated string");
+        char c = buffer[pos++];
+        switch (c) {
+            case '"':
+            case '\\':
+            case '/':
+                return c;
+            case 'b': return '\b';
+            case 'f': return '\f';
+            case 'n': return '\n';
+            case 'r': return '\r';
+            case 't': return '\t';
+            case 'u':
+                int code = 0;
+                for (int i = 0; i < 4; i++) {
+                    if (!fill()) throw error("Unterminated string");
+                    int digit = Character.digit(buffer[pos++], 16);
+                    if (digit == -1) throw error("Invalid unicode escape");
+                    code = (code << 4) | digit;
+                }
+                return (char) code;
+            default:
+                throw error("Invalid escape char '" + c + "'");
+        }
+    }
+
+    /**
+     * Skips any json value, for keys that are not used.
+     */
+    private void skipValue() throws IOException {
+        skipWhitespace();
+        if (!fill()) throw error("Expected a value");
+        char c = buffer[pos];
+        if (c == '"') {
+            readString();
+        } else if (c == '{') {
+            pos++;
+            if (consumeIf('}')) return;
+            do {
+                readString();
+                expect(':');
+                skipValue();
+            } while (consumeIf(','));
+            expect('}');
+        } else if (c == '[') {
+            pos++;
+            if (consumeIf(']')) return;
+            do {
+                skipValue();
+            } while (consumeIf(','));
+            expect(']');
+        } else {
+            //number, true, false, null
+            int length = 0;
+            while (fill() && isLiteralChar(buffer[pos])) {
+                pos++;
+                length++;
+            }
+            if (length == 0) throw error("Expected a value");
+        }
+    }
+
+    private static boolean isLiteralChar(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || c == '-' || c == '+' || c == '.' || c == 'E';
+    }
+
+    private void expect(char expected) throws IOException {
+        if (!consumeIf(expected)) throw error("Expected '" + expected + "'");
+    }
+
+    /**
+     * Skips whitespace, and then consumes the char if it's the expected one.
+     */
+    private boolean consumeIf(char expected) throws IOException {
+        skipWhitespace();
+        if (fill() && buffer[pos] == expected) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Also skips a byte order mark, some editors write one at the start of the file.
+     */
+    private void skipWhitespace() throws IOException {
+        while (fill()) {
+            char c = buffer[pos];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t' && c != '\uFEFF') return;
+            pos++;
+        }
+    }
+
+    /**
+     * @return false at the end of the input, true if there is a char at pos.
+     */
+    private boolean fill() throws IOException {
+        if (pos < limit) return true;
+        bufferStart += limit;
+        pos = 0;
+        limit = 0;
+        while (limit == 0) {
+            int read = reader.read(buffer, 0, buffer.length);
+            if (read == -1) return false;
+            limit = read;
+        }
+        return true;
+    }
+
+    private IOException error(String message) {
+        return new IOException("Invalid language profile json at char " + (bufferStart + pos) + ": " + message);
+    }
+
+}
@@ -20,8 +20,6 @@ import com.optimaize.langdetect.cybozu.util.LangProfile;
 
 import java.io.*;
 import java.nio.charset.Charset;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Reads {@link LangProfile}s.
@@ -31,10 +29,6 @@ import java.util.regex.Pattern;
  */
 public class LangProfileReader {
 
-	private static final Pattern FREQ_PATTERN = Pattern.compile("\"freq\" ?: ?\\{(.+?)\\}");
-	private static final Pattern N_WORDS_PATTERN = Pattern.compile("\"n_words\" ?: ?\\[(.+?)\\]");
-	private static final Pattern NAME_PATTERN = Pattern.compile("\"name\" ?: ?\"(.+?)\"");
-
     /**
      * Reads a {@link LangProfile} from a File in UTF-8.
      */
@@ -51,47 +45,15 @@ public class LangProfileReader {
 
     /**
      * Reads a {@link LangProfile} from an InputStream in UTF-8.
+     *
+     * <p>The json is parsed in a single pass while streaming, without holding the whole file in memory.</p>
+     *
+     * @throws IOException on read errors, or if the content is not valid json.
      */
 	public LangProfile read(InputStream inputStream) throws IOException {
-		StringBuilder buffer = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, Charset.forName("utf-8")))) {
-            String line;
-            while((line = reader.readLine()) != null) {
-                if (buffer.length() > 0) {
-                    buffer.append(' ');
-                }
-                buffer.append(line);
-            }
+        try (Reader reader = new InputStreamReader(inputStream, Charset.forName("utf-8"))) {
+            return new LangProfileJsonParser(reader).parse();
         }
-
-		String storedProfile = buffer.toString();
-		LangProfile langProfile = new LangProfile();
-
-		Matcher m = FREQ_PATTERN.matcher(storedProfile);
-		if (m.find()) {
-			String[] entries = m.group(1).split(",");
-			for (String entry : entries) {
-				String[] keyValue = entry.split(":");
-				String label = keyValue[0].trim().replace("\"", "");
-				langProfile.getFreq().put(label, Integer.valueOf(keyValue[1]));
-			}
-		}
-
-		m = N_WORDS_PATTERN.matcher(storedProfile);
-		if (m.find()) {
-			String[] nWords = m.group(1).split(",");
-			langProfile.setNWords(new int[nWords.length]);
-			for (int i = 0; i < nWords.length; i++) {
-				langProfile.getNWords()[i] = Integer.parseInt(nWords[i]);
-			}
-		}
-		
-		m = NAME_PATTERN.matcher(storedProfile);
-		if (m.find()) {
-			langProfile.setName(m.group(1));
-		}
-
-		return langProfile;
 	}
 
 }
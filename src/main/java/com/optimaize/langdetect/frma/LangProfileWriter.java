@@ -43,9 +43,8 @@ public class LangProfileWriter {
                 if (!first) {
                     writer.write(',');
                 }
-                writer.write('"');
-                writer.write(entry.getKey());
-                writer.write("\":");
+                writeJsonString(writer, entry.getKey());
+                writer.write(':');
                 writer.write(entry.getValue().toString());
                 first = false;
             }
@@ -58,10 +57,30 @@ public class LangProfileWriter {
                 writer.write(Integer.toString(nWord));
                 first = false;
             }
-            writer.write("],\"name\":\"");
-            writer.write(langProfile.getName());
-            writer.write("\"}");
+            writer.write("],\"name\":");
+            writeJsonString(writer, langProfile.getName());
+            writer.write('}');
             writer.flush();
         }
 	}
+
+    /**
+     * Writes the string in quotes, escaping what json requires.
+     */
+    private static void writeJsonString(Writer writer, String string) throws IOException {
+        writer.write('"');
+        for (int i=0; i<string.length(); i++) {
+            char c = string.charAt(i);
+            if (c == '"' || c == '\\') {
+                writer.write('\\');
+                writer.write(c);
+            } else if (c < 0x20) {
+                writer.write(String.format("\\u%04x", (int) c));
+            } else {
+                writer.write(c);
+            }
+        }
+        writer.write('"');
+    }
+
 }
@@ -23,7 +23,7 @@ package com.optimaize.langdetect.ngram;
  *
  * @author Fabian Kessler
  */
-public class BackwardsCompatibleNgramFilter implements NgramFilter {
+public class BackwardsCompatibleNgramFilter implements CharNgramFilter {
 
     private static final BackwardsCompatibleNgramFilter INSTANCE = new BackwardsCompatibleNgramFilter();
 
@@ -39,29 +39,41 @@ public class BackwardsCompatibleNgramFilter implements NgramFilter {
     public boolean use(String ngram) {
         switch (ngram.length()) {
             case 1:
-                if (ngram.charAt(0)==' ') {
-                    return false;
-                }
-                return true;
+                return use(ngram.charAt(0));
             case 2:
-                if (Character.isUpperCase(ngram.charAt(0)) && Character.isUpperCase(ngram.charAt(1))) {
-                    //all upper case
-                    return false;
-                }
-                return true;
+                return use(ngram.charAt(0), ngram.charAt(1));
             case 3:
-                if (Character.isUpperCase(ngram.charAt(0)) && Character.isUpperCase(ngram.charAt(1)) && Character.isUpperCase(ngram.charAt(2))) {
-                    //all upper case
-                    return false;
-                }
-                if (ngram.charAt(1)==' ') {
-                    //middle char is a space
-                    return false;
-                }
-                return true;
+                return use(ngram.charAt(0), ngram.charAt(1), ngram.charAt(2));
             default:
                 throw new UnsupportedOperationException("Unsupported n-gram length: "+ngram.length());
         }
     }
 
+    @Override
+    public boolean use(char c) {
+        return c != ' ';
+    }
+
+    @Override
+    public boolean use(char c1, char c2) {
+        if (Character.isUpperCase(c1) && Character.isUpperCase(c2)) {
+            //all upper case
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean use(char c1, char c2, char c3) {
+        if (Character.isUpperCase(c1) && Character.isUpperCase(c2) && Character.isUpperCase(c3)) {
+            //all upper case
+            return false;
+        }
+        if (c2==' ') {
+            //middle char is a space
+            return false;
+        }
+        return true;
+    }
+
 }
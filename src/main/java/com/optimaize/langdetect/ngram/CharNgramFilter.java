@@ -0,0 +1,33 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.optimaize.langdetect.ngram;
+
+/**
+ * An {@link NgramFilter} that can decide on the chars of an n-gram directly, without a String.
+ *
+ * <p>Used by {@link NgramExtractor#visitGrams} for n-grams of 1 to 3 chars. Implementations must give the
+ * same answer as {@link #use(String)} does for the same chars.</p>
+ *
+ * Implementations must be immutable.
+ */
+public interface CharNgramFilter extends NgramFilter {
+
+    boolean use(char c);
+
+    boolean use(char c1, char c2);
+
+    boolean use(char c1, char c2, char c3);
+
+}
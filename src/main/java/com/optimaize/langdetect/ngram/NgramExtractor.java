@@ -33,8 +33,18 @@ public class NgramExtractor {
 
     @NotNull
     private final List<Integer> gramLengths;
+    /**
+     * Same as gramLengths, for the loops in {@link #visitGrams}.
+     */
+    @NotNull
+    private final int[] gramLengthArray;
     @Nullable
     private final NgramFilter filter;
+    /**
+     * The filter if it is a CharNgramFilter, otherwise null.
+     */
+    @Nullable
+    private final CharNgramFilter charFilter;
     @Nullable
     private final Character textPadding;
 
@@ -66,7 +76,12 @@ public class NgramExtractor {
     private NgramExtractor(@NotNull List<Integer> gramLengths, @Nullable NgramFilter filter, @Nullable Character textPadding) {
         if (gramLengths.isEmpty()) throw new IllegalArgumentException();
         this.gramLengths = ImmutableList.copyOf(gramLengths);
+        this.gramLengthArray = new int[gramLengths.size()];
+        for (int i=0; i<gramLengthArray.length; i++) {
+            gramLengthArray[i] = this.gramLengths.get(i);
+        }
         this.filter = filter;
+        this.charFilter = (filter instanceof CharNgramFilter) ? (CharNgramFilter)filter : null;
         this.textPadding = textPadding;
     }
 
@@ -74,6 +89,80 @@ public class NgramExtractor {
         return gramLengths;
     }
 
+    /**
+     * @return true if all gram lengths are from 1 to {@link PackedNgram#MAX_LENGTH}, and thus
+     *         {@link #visitGrams} can be used.
+     */
+    public boolean canPack() {
+        for (int gramLength : gramLengthArray) {
+            if (gramLength < 1 || gramLength > PackedNgram.MAX_LENGTH) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Passes the n-grams of a text to the visitor in the order they occur, as {@link PackedNgram packed} grams.
+     *
+     * <p>Produces the same grams as {@link #extractGrams} but walks the text only once, and does not create
+     * any objects per gram. The padding is applied virtually, the text is not copied. The filter works on
+     * the chars directly if it is a {@link CharNgramFilter}, otherwise each gram is turned into a String
+     * for it.</p>
+     *
+     * <p>Example: visitGrams("Foo", v) with gram lengths [1,2] and no padding visits
+     * F,o,Fo,o,oo</p>
+     *
+     * @throws UnsupportedOperationException if not {@link #canPack()}.
+     */
+    public void visitGrams(@NotNull CharSequence text, @NotNull NgramVisitor visitor) {
+        if (!canPack()) throw new UnsupportedOperationException("Gram lengths "+gramLengths+" can't be packed, the maximum is "+PackedNgram.MAX_LENGTH+"!");
+        int textLength = text.length();
+        if (textLength==0) return;
+
+        boolean padLeft  = textPadding!=null && text.charAt(0) != textPadding;
+        boolean padRight = textPadding!=null && text.charAt(textLength-1) != textPadding;
+        int offset = padLeft ? 1 : 0;
+        int len = textLength + offset + (padRight ? 1 : 0);
+
+        long window = 0;
+        char c1 = 0; //the char before c
+        char c2 = 0; //the char before c1
+        for (int pos=0; pos<len; pos++) {
+            char c;
+            if (pos < offset || pos - offset >= textLength) {
+                //noinspection ConstantConditions
+                c = textPadding;
+            } else {
+                c = text.charAt(pos - offset);
+            }
+            window = (window << 16) | c;
+            for (int gramLength : gramLengthArray) {
+                if (pos+1 < gramLength) continue;
+                if (filter==null || use(gramLength, window, c2, c1, c)) {
+                    visitor.visit(PackedNgram.fromWindow(window, gramLength), gramLength, pos + 1 - gramLength);
+                }
+            }
+            c2 = c1;
+            c1 = c;
+        }
+    }
+
+    private boolean use(int gramLength, long window, char c2, char c1, char c) {
+        if (charFilter!=null) {
+            switch (gramLength) {
+                case 1:
+                    return charFilter.use(c);
+                case 2:
+                    return charFilter.use(c1, c);
+                default:
+                    return charFilter.use(c2, c1, c);
+            }
+        }
+        assert filter != null;
+        return filter.use(PackedNgram.toString(PackedNgram.fromWindow(window, gramLength)));
+    }
+
     /**
      * Creates the n-grams for a given text in the order they occur.
      *
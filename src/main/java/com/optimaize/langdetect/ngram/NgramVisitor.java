@@ -0,0 +1,32 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.optimaize.langdetect.ngram;
+
+/**
+ * Receives the n-grams of a text one by one, see {@link NgramExtractor#visitGrams}.
+ *
+ * <p>Called for every n-gram that passes the filter, in the order they occur in the text. At the same
+ * position the shorter grams come first (as configured in the NgramExtractor's gram lengths).</p>
+ */
+public interface NgramVisitor {
+
+    /**
+     * @param packedGram the n-gram, see {@link PackedNgram}.
+     * @param length 1-3, the same as {@code PackedNgram.length(packedGram)}.
+     * @param position where the n-gram starts in the padded text, 0-based.
+     */
+    void visit(long packedGram, int length, int position);
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.optimaize.langdetect.ngram;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Packs n-grams of 1 to 3 chars into a primitive {@code long}.
+ *
+ * <p>A char is 16 bit, so 3 chars fit into the lower 48 bits. The chars are right-aligned, the last char
+ * of the gram is in the lowest 16 bits. The gram length is stored in the bits above, this way "a" and
+ * "\u0000a" get different codes. A packed gram is never 0.</p>
+ *
+ * <p>The right alignment allows a rolling window: shift the previous code 16 bits to the left, add the
+ * new char, and mask out what's needed.</p>
+ */
+public final class PackedNgram {
+
+    /**
+     * The longest gram that can be packed.
+     */
+    public static final int MAX_LENGTH = 3;
+
+    private static final int LENGTH_SHIFT = 48;
+    private static final long CHARS_MASK = (1L << LENGTH_SHIFT) - 1;
+
+    private PackedNgram() {
+    }
+
+    /**
+     * @return true if the gram has 1 to {@link #MAX_LENGTH} chars.
+     */
+    public static boolean canPack(@NotNull CharSequence gram) {
+        return gram.length() >= 1 && gram.length() <= MAX_LENGTH;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the gram is empty or longer than {@link #MAX_LENGTH}.
+     */
+    public static long pack(@NotNull CharSequence gram) throws IllegalArgumentException {
+        switch (gram.length()) {
+            case 1:
+                return pack(gram.charAt(0));
+            case 2:
+                return pack(gram.charAt(0), gram.charAt(1));
+            case 3:
+                return pack(gram.charAt(0), gram.charAt(1), gram.charAt(2));
+            default:
+                throw new IllegalArgumentException("Unsupported n-gram length: "+gram.length());
+        }
+    }
+
+    public static long pack(char c) {
+        return (1L << LENGTH_SHIFT) | c;
+    }
+
+    public static long pack(char c1, char c2) {
+        return (2L << LENGTH_SHIFT) | ((long)c1 << 16) | c2;
+    }
+
+    public static long pack(char c1, char c2, char c3) {
+        return (3L << LENGTH_SHIFT) | ((long)c1 << 32) | ((long)c2 << 16) | c3;
+    }
+
+    /**
+     * Makes a packed gram from the lowest chars of a rolling window.
+     * @param window chars right-aligned, as in a packed gram. Higher chars are ignored.
+     * @param length 1-3
+     */
+    public static long fromWindow(long window, int length) {
+        return ((long)length << LENGTH_SHIFT) | (window & ((1L << (16 * length)) - 1));
+    }
+
+    /**
+     * @return 1-3
+     */
+    public static int length(long packedGram) {
+        return (int)(packedGram >>> LENGTH_SHIFT);
+    }
+
+    /**
+     * @param index 0-based, from the left as in {@link String#charAt}.
+     */
+    public static char charAt(long packedGram, int index) {
+        int length = length(packedGram);
+        if (index < 0 || index >= length) throw new IndexOutOfBoundsException("index "+index+" for length "+length);
+        return (char)((packedGram & CHARS_MASK) >>> (16 * (length - 1 - index)));
+    }
+
+    @NotNull
+    public static String toString(long packedGram) {
+        int length = length(packedGram);
+        char[] chars = new char[length];
+        for (int i=0; i<length; i++) {
+            chars[i] = charAt(packedGram, i);
+        }
+        return new String(chars);
+    }
+
+}
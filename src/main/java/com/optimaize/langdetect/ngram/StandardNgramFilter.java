@@ -23,7 +23,7 @@ package com.optimaize.langdetect.ngram;
  *
  * @author Fabian Kessler
  */
-public class StandardNgramFilter implements NgramFilter {
+public class StandardNgramFilter implements CharNgramFilter {
 
     private static final StandardNgramFilter INSTANCE = new StandardNgramFilter();
 
@@ -38,18 +38,11 @@ public class StandardNgramFilter implements NgramFilter {
     public boolean use(String ngram) {
         switch (ngram.length()) {
             case 1:
-                if (ngram.charAt(0)==' ') {
-                    return false;
-                }
-                return true;
+                return use(ngram.charAt(0));
             case 2:
-                return true;
+                return use(ngram.charAt(0), ngram.charAt(1));
             case 3:
-                if (ngram.charAt(1)==' ') {
-                    //middle char is a space
-                    return false;
-                }
-                return true;
+                return use(ngram.charAt(0), ngram.charAt(1), ngram.charAt(2));
             case 4:
                 if (ngram.charAt(1)==' ' || ngram.charAt(2)==' ') {
                     //one of the middle chars is a space
@@ -62,4 +55,20 @@ public class StandardNgramFilter implements NgramFilter {
         }
     }
 
+    @Override
+    public boolean use(char c) {
+        return c != ' ';
+    }
+
+    @Override
+    public boolean use(char c1, char c2) {
+        return true;
+    }
+
+    @Override
+    public boolean use(char c1, char c2, char c3) {
+        //middle char is a space
+        return c2 != ' ';
+    }
+
 }
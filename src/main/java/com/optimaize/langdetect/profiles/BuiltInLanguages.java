@@ -29,6 +29,7 @@ public class BuiltInLanguages {
 
     private static final List<LdLocale> languages;
     private static final List<String> shortTextLanguages;
+    private static final List<List<LdLocale>> languageGroups;
 
     static {
         List<LdLocale> names = new ArrayList<>();
@@ -131,6 +132,35 @@ public class BuiltInLanguages {
         shortTextLanguages = ImmutableList.copyOf(texts);
     }
 
+    static {
+        List<List<LdLocale>> groups = new ArrayList<>();
+        //Latin script, by family:
+        groups.add(group("an", "ast", "ca", "es", "fr", "gl", "ht", "it", "oc", "pt", "ro", "wa")); //Romance
+        groups.add(group("af", "da", "de", "en", "is", "nl", "no", "sv")); //Germanic
+        groups.add(group("br", "cy", "ga")); //Celtic
+        groups.add(group("cs", "hr", "pl", "sk", "sl")); //Slavic
+        groups.add(group("et", "fi", "hu", "lt", "lv")); //Baltic and Uralic
+        groups.add(group("eu", "id", "ms", "mt", "so", "sq", "sw", "tl", "tr", "vi")); //others
+        //other scripts:
+        groups.add(group("be", "bg", "mk", "ru", "sr", "uk")); //Cyrillic
+        groups.add(group("el")); //Greek
+        groups.add(group("ar", "fa", "ur")); //Arabic
+        groups.add(group("he", "yi")); //Hebrew
+        groups.add(group("hi", "mr", "ne")); //Devanagari
+        groups.add(group("bn", "gu", "kn", "ml", "pa", "ta", "te")); //other Indic scripts
+        groups.add(group("ja", "ko", "zh-CN", "zh-TW")); //CJK
+        groups.add(group("km", "th")); //Khmer, Thai
+        languageGroups = ImmutableList.copyOf(groups);
+    }
+
+    private static List<LdLocale> group(String... languages) {
+        List<LdLocale> group = new ArrayList<>();
+        for (String language : languages) {
+            group.add(LdLocale.fromString(language));
+        }
+        return ImmutableList.copyOf(group);
+    }
+
     /**
      * Returns the languages for which the library provides full profiles.
      * Full provides are generated from regular text, usually Wikipedia abstracts.
@@ -149,4 +179,14 @@ public class BuiltInLanguages {
     public static List<String> getShortTextLanguages() {
         return shortTextLanguages;
     }
+
+    /**
+     * Returns the languages of {@link #getLanguages()} in groups, by script and for the Latin script by family.
+     * Each language is in exactly one group. For the two-stage detection, see
+     * {@link com.optimaize.langdetect.LanguageDetectorBuilder#languageGroups}.
+     * @return immutable
+     */
+    public static List<List<LdLocale>> getLanguageGroups() {
+        return languageGroups;
+    }
 }
@@ -24,6 +24,7 @@ import java.io.*;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.*;
 
 /**
  * Reads {@link LanguageProfile}s.
@@ -63,15 +64,77 @@ public class LanguageProfileReader {
     public List<LanguageProfile> read(ClassLoader classLoader, String profileDirectory, Collection<String> profileFileNames) throws IOException {
         List<LanguageProfile> loaded = new ArrayList<>(profileFileNames.size());
         for (String profileFileName : profileFileNames) {
-            String path = makePathForClassLoader(profileDirectory, profileFileName);
-            try (InputStream in = classLoader.getResourceAsStream(path)) {
-                if (in == null) {
-                    throw new IOException("No language file available named "+profileFileName+" at " + path + "!");
+            loaded.add( read(classLoader, profileDirectory, profileFileName) );
+        }
+        return loaded;
+    }
+
+    /**
+     * Same as {@link #read(ClassLoader, String, java.util.Collection)}, but the profiles are read and converted
+     * concurrently on the executor.
+     *
+     * <p>The result is in the same order as the profileFileNames. When a profile fails to load, the
+     * remaining ones are cancelled and the exception is thrown without waiting for them.</p>
+     *
+     * @param executor The caller owns it, it is not shut down.
+     * @throws InterruptedIOException if interrupted while waiting, the interrupt flag is set again.
+     */
+    public List<LanguageProfile> read(final ClassLoader classLoader, final String profileDirectory, Collection<String> profileFileNames,
+                                      ExecutorService executor) throws IOException {
+        CompletionService<LanguageProfile> completionService = new ExecutorCompletionService<>(executor);
+        List<Future<LanguageProfile>> futures = new ArrayList<>(profileFileNames.size());
+        boolean done = false;
+        try {
+            for (final String profileFileName : profileFileNames) {
+                futures.add(completionService.submit(new Callable<LanguageProfile>() {
+                    @Override
+                    public LanguageProfile call() throws IOException {
+                        return read(classLoader, profileDirectory, profileFileName);
+                    }
+                }));
+            }
+            //in completion order, to fail on the first failure and not on the first in the list:
+            for (int i=0; i<futures.size(); i++) {
+                getLoaded(completionService.take());
+            }
+            List<LanguageProfile> loaded = new ArrayList<>(futures.size());
+            for (Future<LanguageProfile> future : futures) {
+                loaded.add(getLoaded(future));
+            }
+            done = true;
+            return loaded;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading language profiles!");
+        } finally {
+            if (!done) {
+                for (Future<LanguageProfile> future : futures) {
+                    future.cancel(true);
                 }
-                loaded.add( read(in) );
             }
         }
-        return loaded;
+    }
+
+    private static LanguageProfile getLoaded(Future<LanguageProfile> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    private LanguageProfile read(ClassLoader classLoader, String profileDirectory, String profileFileName) throws IOException {
+        String path = makePathForClassLoader(profileDirectory, profileFileName);
+        try (InputStream in = classLoader.getResourceAsStream(path)) {
+            if (in == null) {
+                throw new IOException("No language file available named "+profileFileName+" at " + path + "!");
+            }
+            return read(in);
+        }
     }
 
     private String makePathForClassLoader(String profileDirectory, String fileName) {
@@ -120,6 +183,19 @@ public class LanguageProfileReader {
         return read(LanguageProfileReader.class.getClassLoader(), PROFILES_DIR, profileNames);
     }
 
+    /**
+     * Same as {@link #readBuiltIn(java.util.Collection)}, loading concurrently on the executor.
+     * See {@link #read(ClassLoader, String, java.util.Collection, java.util.concurrent.ExecutorService)}.
+     */
+    @NotNull
+    public List<LanguageProfile> readBuiltIn(@NotNull Collection<LdLocale> languages, @NotNull ExecutorService executor) throws IOException {
+        List<String> profileNames = new ArrayList<>();
+        for (LdLocale locale : languages) {
+            profileNames.add(makeProfileFileName(locale));
+        }
+        return read(LanguageProfileReader.class.getClassLoader(), PROFILES_DIR, profileNames, executor);
+    }
+
     /**
      * @deprecated renamed to readAllBuiltIn()
      */
@@ -137,6 +213,14 @@ public class LanguageProfileReader {
         return loaded;
     }
 
+    /**
+     * Same as {@link #readAllBuiltIn()}, loading concurrently on the executor.
+     * See {@link #read(ClassLoader, String, java.util.Collection, java.util.concurrent.ExecutorService)}.
+     */
+    public List<LanguageProfile> readAllBuiltIn(ExecutorService executor) throws IOException {
+        return readBuiltIn(BuiltInLanguages.getLanguages(), executor);
+    }
+
     /**
      * Loads all profiles from the specified directory.
      *
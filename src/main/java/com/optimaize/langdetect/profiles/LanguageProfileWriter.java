@@ -45,9 +45,8 @@ public class LanguageProfileWriter {
                 if (!first) {
                     writer.write(',');
                 }
-                writer.write('"');
-                writer.write(entry.getKey());
-                writer.write("\":");
+                writeJsonString(writer, entry.getKey());
+                writer.write(':');
                 writer.write(entry.getValue().toString());
                 first = false;
             }
@@ -62,9 +61,9 @@ public class LanguageProfileWriter {
                 writer.write(Long.toString(nWord));
                 first = false;
             }
-            writer.write("],\"name\":\"");
-            writer.write(languageProfile.getLocale().toString());
-            writer.write("\"}");
+            writer.write("],\"name\":");
+            writeJsonString(writer, languageProfile.getLocale().toString());
+            writer.write('}');
             writer.flush();
         }
     }
@@ -91,4 +90,23 @@ public class LanguageProfileWriter {
         }
     }
 
+    /**
+     * Writes the string in quotes, escaping what json requires.
+     */
+    private static void writeJsonString(Writer writer, String string) throws IOException {
+        writer.write('"');
+        for (int i=0; i<string.length(); i++) {
+            char c = string.charAt(i);
+            if (c == '"' || c == '\\') {
+                writer.write('\\');
+                writer.write(c);
+            } else if (c < 0x20) {
+                writer.write(String.format("\\u%04x", (int) c));
+            } else {
+                writer.write(c);
+            }
+        }
+        writer.write('"');
+    }
+
 }
@@ -16,10 +16,14 @@
 
 package com.optimaize.langdetect.text;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+import static com.optimaize.langdetect.text.UnicodeScripts.COMMON;
+import static com.optimaize.langdetect.text.UnicodeScripts.INHERITED;
+import static com.optimaize.langdetect.text.UnicodeScripts.UNKNOWN;
 
 /**
  * Removes text written in scripts that are not the dominant script of the text.
@@ -27,6 +31,9 @@ import java.util.Set;
  * TODO this does not do special handling for Japanese (3 scripts) and Korean (2 scripts), they should be
  * counted together and kept.
  *
+ * <p>Counts per code point, a supplementary character (surrogate pair) is one character of its script.
+ * The counters are primitive, and if nothing is removed no new text is created.</p>
+ *
  * @author Fabian Kessler
  */
 public class RemoveMinorityScriptsTextFilter implements TextFilter {
@@ -50,88 +57,111 @@ public class RemoveMinorityScriptsTextFilter implements TextFilter {
 
     @Override
     public String filter(CharSequence text) {
-        Map<Character.UnicodeScript, Long> counts = countByScript(text);
-        if (counts.size()<=1) {
-            //nothing to do
+        boolean[] toRemove = scriptsToRemove(text);
+        if (toRemove==null) {
             return text.toString();
         } else {
-            long most = findMost(counts);
-            Set<Character.UnicodeScript> toRemove = new HashSet<>();
-            for (Map.Entry<Character.UnicodeScript, Long> entry : counts.entrySet()) {
-                if (entry.getValue()==most) continue;
-                double ratio = entry.getValue().doubleValue() / most;
-                if (ratio <= threshold) {
-                    toRemove.add(entry.getKey());
-                }
-            }
-            if (toRemove.isEmpty()) {
-                return text.toString();
-            } else {
-                return remove(text, toRemove);
-            }
+            return remove(text, toRemove);
         }
     }
 
-    private String remove(CharSequence text, Set<Character.UnicodeScript> toRemove) {
-        StringBuilder remaining = new StringBuilder();
-        Character.UnicodeScript last = null;
-        for (int i=0; i<text.length(); i++) {
-            char c = text.charAt(i);
-            Character.UnicodeScript unicodeScript = Character.UnicodeScript.of(c);
-            if (unicodeScript == Character.UnicodeScript.INHERITED) {
-                if (toRemove.contains(last)) {
-                    //remove, don't update 'last'
-                    continue;
-                }
+    /**
+     * The first half of {@link #filter}: counts and decides what to remove.
+     * @return indexed by {@link Character.UnicodeScript#ordinal()}, true for the scripts to remove.
+     *         null if nothing is removed.
+     */
+    @Nullable
+    boolean[] scriptsToRemove(@NotNull CharSequence text) {
+        int[] counts = new int[UnicodeScripts.COUNT];
+        countByScript(text, counts);
+        int most = most(counts);
+        boolean[] toRemove = null;
+        for (int script=0; script<counts.length; script++) {
+            if (isMinority(counts[script], most)) {
+                if (toRemove==null) toRemove = new boolean[UnicodeScripts.COUNT];
+                toRemove[script] = true;
             }
-            last = unicodeScript;
-            if (toRemove.contains(unicodeScript)) {
-                continue; //remove it
+        }
+        return toRemove;
+    }
+
+    /**
+     * Finds the scripts that {@link #filter} keeps, without creating a new text.
+     * {@link UnicodeScripts#COMMON COMMON}, {@link UnicodeScripts#INHERITED INHERITED} and
+     * {@link UnicodeScripts#UNKNOWN UNKNOWN} are not counted, they are never among them.
+     * @param counts {@link UnicodeScripts#COUNT} long, overwritten. Afterwards the number of characters per
+     *        dominant script, indexed by {@link Character.UnicodeScript#ordinal()}, 0 for the other scripts.
+     * @return how many dominant scripts there are, 0 if the text has no characters of a script.
+     */
+    public int dominantScripts(@NotNull CharSequence text, @NotNull int[] counts) {
+        Arrays.fill(counts, 0);
+        countByScript(text, counts);
+        int most = most(counts);
+        int numDominant = 0;
+        for (int script=0; script<counts.length; script++) {
+            if (isMinority(counts[script], most)) {
+                counts[script] = 0;
+            } else if (counts[script] != 0) {
+                numDominant++;
             }
-            //if we get here then we keep it.
-            remaining.append(c);
         }
-        return remaining.toString();
+        return numDominant;
     }
 
-    private long findMost(Map<Character.UnicodeScript, Long> counts) {
-        long max = 0L;
-        for (Long aLong : counts.values()) {
-            if (aLong > max) max = aLong;
+    private static int most(int[] counts) {
+        int most = 0;
+        for (int count : counts) {
+            if (count > most) most = count;
         }
-        return max;
+        return most;
+    }
+
+    private boolean isMinority(int count, int most) {
+        if (count==0 || count==most) return false;
+        double ratio = (double) count / most;
+        return ratio <= threshold;
     }
 
-    private Map<Character.UnicodeScript, Long> countByScript(CharSequence text) {
-        Map<Character.UnicodeScript, Long> counter = new HashMap<>();
-        Character.UnicodeScript last = null;
-        for (int i=0; i<text.length(); i++) {
-            char c = text.charAt(i);
-            Character.UnicodeScript unicodeScript = Character.UnicodeScript.of(c);
-            switch (unicodeScript) {
-                case INHERITED:
-                    //counts as what the last was.
-                    if (last!=null) { //really shouldn't be null
-                        increment(counter, last);
-                    }
-                    break;
-                case COMMON:
-                case UNKNOWN:
-                    //don't count it
-                    break;
-                default:
-                    increment(counter, unicodeScript);
-                    last = unicodeScript;
+    private String remove(CharSequence text, boolean[] toRemove) {
+        StringBuilder remaining = new StringBuilder(text.length());
+        int last = -1;
+        for (int i=0; i<text.length(); ) {
+            int codePoint = Character.codePointAt(text, i);
+            int charCount = Character.charCount(codePoint);
+            int script = UnicodeScripts.ordinalOf(codePoint);
+            if (script == INHERITED && last != -1 && toRemove[last]) {
+                //remove, don't update 'last'
+                i += charCount;
+                continue;
+            }
+            last = script;
+            if (!toRemove[script]) {
+                remaining.append(text, i, i + charCount);
             }
+            i += charCount;
         }
-        return counter;
+        return remaining.toString();
     }
-    private void increment(Map<Character.UnicodeScript, Long> counter, Character.UnicodeScript unicodeScript) {
-        Long number = counter.get(unicodeScript);
-        if (number==null) {
-            counter.put(unicodeScript, 1L);
-        } else {
-            counter.put(unicodeScript, number+1);
+
+    /**
+     * Adds the number of characters per script to counts, indexed by {@link Character.UnicodeScript#ordinal()}.
+     */
+    private static void countByScript(CharSequence text, int[] counts) {
+        int last = -1;
+        for (int i=0; i<text.length(); ) {
+            int codePoint = Character.codePointAt(text, i);
+            i += Character.charCount(codePoint);
+            int script = UnicodeScripts.ordinalOf(codePoint);
+            if (script == INHERITED) {
+                //counts as what the last was.
+                if (last != -1) { //really shouldn't be -1
+                    counts[last]++;
+                }
+            } else if (script != COMMON && script != UNKNOWN) {
+                counts[script]++;
+                last = script;
+            }
+            //COMMON and UNKNOWN: don't count it
         }
     }
 
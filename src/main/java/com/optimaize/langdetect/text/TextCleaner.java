@@ -0,0 +1,129 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.optimaize.langdetect.text;
+
+import com.optimaize.langdetect.cybozu.util.CharNormalizer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.CharBuffer;
+import java.util.List;
+
+/**
+ * Does what {@link TextObject#append(CharSequence)} does with the common filters, in few passes over one
+ * char buffer instead of creating a new String per filter.
+ *
+ * <p>The filters ({@link UrlTextFilter}, {@link RemoveMinorityScriptsTextFilter}) and the normalization loop
+ * in {@link TextObject} are the reference, the result is the same. The passes are:</p>
+ * <ol>
+ *   <li>copy into the buffer, then remove URLs and email addresses in place</li>
+ *   <li>count the scripts (if minority scripts are removed)</li>
+ *   <li>remove minority scripts, normalize and collapse spaces, in place up to the max text length</li>
+ * </ol>
+ *
+ * <p>This class is immutable, the buffer is passed in.</p>
+ */
+final class TextCleaner {
+
+    private final boolean removeUrls;
+    @Nullable
+    private final RemoveMinorityScriptsTextFilter minorityScriptsFilter;
+
+    private TextCleaner(boolean removeUrls, @Nullable RemoveMinorityScriptsTextFilter minorityScriptsFilter) {
+        this.removeUrls = removeUrls;
+        this.minorityScriptsFilter = minorityScriptsFilter;
+    }
+
+    /**
+     * @return null if the filters are not a known combination, then they must be run one by one.
+     */
+    @Nullable
+    static TextCleaner forFilters(@NotNull List<TextFilter> filters) {
+        boolean removeUrls = false;
+        RemoveMinorityScriptsTextFilter minorityScriptsFilter = null;
+        int i = 0;
+        if (i < filters.size() && filters.get(i) instanceof UrlTextFilter) {
+            removeUrls = true;
+            i++;
+        }
+        if (i < filters.size() && filters.get(i) instanceof RemoveMinorityScriptsTextFilter) {
+            minorityScriptsFilter = (RemoveMinorityScriptsTextFilter) filters.get(i);
+            i++;
+        }
+        if (i < filters.size()) return null;
+        return new TextCleaner(removeUrls, minorityScriptsFilter);
+    }
+
+    /**
+     * @param buffer at least text.length() long, the content is overwritten.
+     * @param out the text so far, the cleaned text is appended.
+     * @param maxTextLength 0 for no limit
+     */
+    void append(@NotNull CharSequence text, @NotNull char[] buffer, @NotNull StringBuilder out, int maxTextLength) {
+        int length = text.length();
+        getChars(text, length, buffer);
+        if (removeUrls) {
+            length = UrlTextFilter.filter(buffer, length);
+        }
+
+        boolean[] scriptsToRemove = minorityScriptsFilter==null ? null : minorityScriptsFilter.scriptsToRemove(CharBuffer.wrap(buffer, 0, length));
+
+        int room = maxTextLength==0 ? Integer.MAX_VALUE : maxTextLength - out.length();
+        char pre = out.length()==0 ? 0 : out.charAt(out.length()-1);
+        int lastScript = -1;
+        int scriptCheckedUntil = 0;
+        int kept = 0;
+        for (int i=0; i<length && kept<room; i++) {
+            if (scriptsToRemove!=null && i>=scriptCheckedUntil) {
+                //per code point, a surrogate pair is kept or removed as a whole.
+                int codePoint = Character.codePointAt(buffer, i, length);
+                scriptCheckedUntil = i + Character.charCount(codePoint);
+                int script = UnicodeScripts.ordinalOf(codePoint);
+                if (script == UnicodeScripts.INHERITED && lastScript!=-1 && scriptsToRemove[lastScript]) {
+                    //remove, don't update 'lastScript'
+                    i = scriptCheckedUntil - 1;
+                    continue;
+                }
+                lastScript = script;
+                if (scriptsToRemove[script]) {
+                    i = scriptCheckedUntil - 1;
+                    continue;
+                }
+            }
+            char c = CharNormalizer.normalize(buffer[i]);
+            if (c != ' ' || pre != ' ') {
+                buffer[kept++] = c;
+            }
+            pre = c;
+        }
+        out.append(buffer, 0, kept);
+    }
+
+    static void getChars(CharSequence text, int length, char[] dst) {
+        if (text instanceof String) {
+            ((String) text).getChars(0, length, dst, 0);
+        } else if (text instanceof StringBuilder) {
+            ((StringBuilder) text).getChars(0, length, dst, 0);
+        } else if (text instanceof CharBuffer && ((CharBuffer) text).hasArray()) {
+            CharBuffer buffer = (CharBuffer) text;
+            System.arraycopy(buffer.array(), buffer.arrayOffset() + buffer.position(), dst, 0, length);
+        } else {
+            for (int i=0; i<length; i++) {
+                dst[i] = text.charAt(i);
+            }
+        }
+    }
+
+}
@@ -19,9 +19,16 @@ package com.optimaize.langdetect.text;
 import com.optimaize.langdetect.cybozu.util.CharNormalizer;
 import com.google.common.annotations.Beta;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 
 /**
  * A convenient text object implementing CharSequence and Appendable.
@@ -48,6 +55,11 @@ import java.io.Reader;
 @Beta
 public class TextObject implements CharSequence, Appendable {
 
+    /**
+     * How many chars append(Reader) reads at once.
+     */
+    private static final int READ_CHUNK_SIZE = 8192;
+
     @NotNull
     private final TextFilter textFilter;
 
@@ -56,35 +68,124 @@ public class TextObject implements CharSequence, Appendable {
 
     private final int maxTextLength;
 
+    /**
+     * Does the same as the textFilter and the loop in append() together, if the filters allow it.
+     */
+    @Nullable
+    private final TextCleaner textCleaner;
+    /**
+     * For the textCleaner, reused by all append() calls.
+     */
+    @Nullable
+    private char[] buffer;
+
 
     /**
      * @param maxTextLength 0 for no limit
      */
     public TextObject(@NotNull TextFilter textFilter, int maxTextLength) {
+        this(textFilter, maxTextLength, null);
+    }
+
+    TextObject(@NotNull TextFilter textFilter, int maxTextLength, @Nullable TextCleaner textCleaner) {
         this.textFilter = textFilter;
         this.maxTextLength = maxTextLength;
+        this.textCleaner = textCleaner;
         this.stringBuilder = new StringBuilder();
     }
 
 
     /**
      * Append the target text for language detection.
-     * This method read the text from specified input reader.
-     * If the total size of target text exceeds the limit size,
-     * the rest is ignored.
+     * This method reads the text from the specified reader until the end of the stream,
+     * or until the max text length is reached, the rest is not read.
      *
-     * @param reader the input reader (BufferedReader as usual)
+     * <p>The text is passed to the filters in chunks of a few thousand chars, split after a whitespace
+     * so that no URL, email address or word is cut in two. Only one chunk is in memory at a time, in addition
+     * to the text object itself. Note that filters that look at the whole text, such as the
+     * {@link RemoveMinorityScriptsTextFilter}, decide per chunk.</p>
+     *
+     * @param reader the input reader. It is not closed.
      * @throws java.io.IOException Can't read the reader.
      */
     public TextObject append(Reader reader) throws IOException {
-        char[] buf = new char[1024];
-        while (reader.ready() && (maxTextLength==0 || stringBuilder.length()<maxTextLength)) {
-            int length = reader.read(buf);
-            append(String.valueOf(buf, 0, length));
+        char[] chunk = new char[READ_CHUNK_SIZE];
+        int length = 0;
+        while (!isFull()) {
+            int read = reader.read(chunk, length, chunk.length - length);
+            if (read == -1) break;
+            length = appendChunk(chunk, length + read, length + read == chunk.length);
+        }
+        if (length > 0) {
+            append(CharBuffer.wrap(chunk, 0, length));
         }
         return this;
     }
 
+    /**
+     * Append the target text for language detection, UTF-8 encoded.
+     * The bytes are decoded in chunks like in {@link #append(Reader)}, without creating a String, and only until
+     * the max text length is reached. Malformed input is replaced with U+FFFD.
+     *
+     * @param utf8 read from its position to its limit, heap or direct. The position is not changed.
+     */
+    public TextObject appendUtf8(ByteBuffer utf8) {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer in = utf8.duplicate();
+        char[] chunk = new char[READ_CHUNK_SIZE];
+        int length = 0;
+        while (!isFull()) {
+            CharBuffer out = CharBuffer.wrap(chunk, length, chunk.length - length);
+            CoderResult result = decoder.decode(in, out, true);
+            if (result.isUnderflow()) {
+                decoder.flush(out); //nothing to flush for UTF-8
+            }
+            length = appendChunk(chunk, out.position(), result.isOverflow());
+            if (result.isUnderflow()) break;
+        }
+        if (length > 0) {
+            append(CharBuffer.wrap(chunk, 0, length));
+        }
+        return this;
+    }
+
+    /**
+     * Same as {@link #appendUtf8(ByteBuffer)}.
+     */
+    public TextObject appendUtf8(byte[] utf8, int offset, int length) {
+        return appendUtf8(ByteBuffer.wrap(utf8, offset, length));
+    }
+
+    private boolean isFull() {
+        return maxTextLength>0 && stringBuilder.length()>=maxTextLength;
+    }
+
+    /**
+     * Appends the chunk up to its last whitespace, and moves the rest to the start for the next chunk.
+     * If there is no whitespace and the chunk is full then all of it is appended, except a trailing
+     * high surrogate.
+     * @param full true if no more can be read into the chunk before some is appended.
+     * @return the length of the rest.
+     */
+    private int appendChunk(char[] chunk, int length, boolean full) {
+        int end = 0;
+        for (int i=length-1; i>=0; i--) {
+            if (Character.isWhitespace(chunk[i])) {
+                end = i+1;
+                break;
+            }
+        }
+        if (end == 0) {
+            if (!full) return length; //no whitespace yet, read more.
+            end = Character.isHighSurrogate(chunk[length-1]) ? length-1 : length;
+        }
+        append(CharBuffer.wrap(chunk, 0, end));
+        System.arraycopy(chunk, end, chunk, 0, length - end);
+        return length - end;
+    }
+
     /**
      * Append the target text for language detection.
      * If the total size of target text exceeds the limit size ,
@@ -94,7 +195,15 @@ public class TextObject implements CharSequence, Appendable {
      */
     @Override
     public TextObject append(CharSequence text) {
-        if (maxTextLength>0 && stringBuilder.length()>=maxTextLength) return this;
+        if (isFull()) return this;
+
+        if (textCleaner!=null) {
+            if (buffer==null || buffer.length<text.length()) {
+                buffer = new char[text.length()];
+            }
+            textCleaner.append(text, buffer, stringBuilder, maxTextLength);
+            return this;
+        }
 
         text = textFilter.filter(text);
 
@@ -16,6 +16,8 @@
 
 package com.optimaize.langdetect.text;
 
+import java.nio.ByteBuffer;
+
 /**
  * Factory for {@link TextObject}s.
  *
@@ -25,21 +27,44 @@ public class TextObjectFactory {
 
     private final TextFilter textFilter;
     private final int maxTextLength;
+    private final TextCleaner textCleaner;
 
     /**
      * @param maxTextLength 0 for none
      */
     public TextObjectFactory(TextFilter textFilter, int maxTextLength) {
+        this(textFilter, maxTextLength, null);
+    }
+
+    /**
+     * @param textCleaner null to run the textFilter
+     */
+    TextObjectFactory(TextFilter textFilter, int maxTextLength, TextCleaner textCleaner) {
         this.textFilter = textFilter;
         this.maxTextLength = maxTextLength;
+        this.textCleaner = textCleaner;
     }
 
     public TextObject create() {
-        return new TextObject(textFilter, maxTextLength);
+        return new TextObject(textFilter, maxTextLength, textCleaner);
     }
 
     public TextObject forText(CharSequence text) {
         return create().append(text);
     }
 
+    /**
+     * @param utf8 UTF-8 encoded text, read from its position to its limit. See {@link TextObject#appendUtf8(ByteBuffer)}.
+     */
+    public TextObject forUtf8(ByteBuffer utf8) {
+        return create().appendUtf8(utf8);
+    }
+
+    /**
+     * @param utf8 UTF-8 encoded text.
+     */
+    public TextObject forUtf8(byte[] utf8) {
+        return create().appendUtf8(utf8, 0, utf8.length);
+    }
+
 }
@@ -52,7 +52,8 @@ public class TextObjectFactoryBuilder {
     public TextObjectFactory build() {
         return new TextObjectFactory(
                 new MultiTextFilter(textFilters),
-                maxTextLength
+                maxTextLength,
+                TextCleaner.forFilters(textFilters)
         );
     }
 
@@ -0,0 +1,88 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.optimaize.langdetect.text;
+
+import java.nio.CharBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Fast lookup of the {@link Character.UnicodeScript} of a character, by ordinal.
+ *
+ * <p>{@link Character.UnicodeScript#of(int)} does a binary search over all script ranges. Here the scripts
+ * of the BMP are precomputed in blocks of 256 chars, blocks with the same content are shared (most blocks
+ * have just one script). Supplementary code points go to {@link Character.UnicodeScript#of(int)}.</p>
+ */
+public final class UnicodeScripts {
+
+    private static final Character.UnicodeScript[] SCRIPTS = Character.UnicodeScript.values();
+
+    /**
+     * How many scripts there are, the ordinals are 0 to COUNT-1.
+     */
+    public static final int COUNT = SCRIPTS.length;
+
+    public static final int COMMON = Character.UnicodeScript.COMMON.ordinal();
+    public static final int INHERITED = Character.UnicodeScript.INHERITED.ordinal();
+    public static final int UNKNOWN = Character.UnicodeScript.UNKNOWN.ordinal();
+
+    private static final int BLOCK_BITS = 8;
+    private static final int BLOCK_MASK = (1 << BLOCK_BITS) - 1;
+    /**
+     * The script ordinal per char, in blocks.
+     */
+    private static final char[][] BLOCKS = new char[1 << (16 - BLOCK_BITS)][];
+
+    static {
+        Map<CharBuffer, char[]> distinct = new HashMap<>();
+        for (int first = 0; first <= 0xFFFF; first += BLOCK_MASK + 1) {
+            char[] block = new char[BLOCK_MASK + 1];
+            for (int i=0; i<block.length; i++) {
+                block[i] = (char) Character.UnicodeScript.of(first + i).ordinal();
+            }
+            char[] same = distinct.get(CharBuffer.wrap(block));
+            if (same == null) {
+                distinct.put(CharBuffer.wrap(block), block);
+                same = block;
+            }
+            BLOCKS[first >>> BLOCK_BITS] = same;
+        }
+    }
+
+    private UnicodeScripts() {
+    }
+
+    /**
+     * Same as {@code Character.UnicodeScript.of(c).ordinal()}. A surrogate char is {@link #UNKNOWN}.
+     */
+    public static int ordinalOf(char c) {
+        return BLOCKS[c >>> BLOCK_BITS][c & BLOCK_MASK];
+    }
+
+    /**
+     * Same as {@code Character.UnicodeScript.of(codePoint).ordinal()}.
+     */
+    public static int ordinalOf(int codePoint) {
+        if (codePoint <= 0xFFFF) {
+            return ordinalOf((char) codePoint);
+        }
+        return Character.UnicodeScript.of(codePoint).ordinal();
+    }
+
+    public static Character.UnicodeScript valueOf(int ordinal) {
+        return SCRIPTS[ordinal];
+    }
+
+}
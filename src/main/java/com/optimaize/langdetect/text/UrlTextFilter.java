@@ -16,17 +16,42 @@
 
 package com.optimaize.langdetect.text;
 
-import java.util.regex.Pattern;
-
 /**
  * Removes URLs and email addresses from the text.
  *
+ * <p>Each one is replaced by a space. What is removed is defined by these regular expressions, applied one
+ * after the other:</p>
+ * <pre>
+ * URL:   https?://[-_.?&amp;~;+=/#0-9A-Za-z]+
+ * email: [-_.0-9A-Za-z]+@[-_0-9A-Za-z]+[-_.0-9A-Za-z]+
+ * </pre>
+ *
+ * <p>The implementation does not use them though, it scans the text once per expression without
+ * backtracking, and not at all if there is no "://" or "@".</p>
+ *
  * @author Fabian Kessler
  */
 public class UrlTextFilter implements TextFilter {
 
-    private static final Pattern URL_REGEX = Pattern.compile("https?://[-_.?&~;+=/#0-9A-Za-z]+");
-    private static final Pattern MAIL_REGEX = Pattern.compile("[-_.0-9A-Za-z]+@[-_0-9A-Za-z]+[-_.0-9A-Za-z]+");
+    private static final String URL_CHARS = "-_.?&~;+=/#";
+    private static final String MAIL_CHARS = "-_.";
+
+    /**
+     * Indexed by char, for the ASCII chars only. True for [-_.?&~;+=/#0-9A-Za-z]
+     */
+    private static final boolean[] IS_URL_CHAR = new boolean[128];
+    /**
+     * Indexed by char, for the ASCII chars only. True for [-_.0-9A-Za-z]
+     */
+    private static final boolean[] IS_MAIL_CHAR = new boolean[128];
+
+    static {
+        for (char c = '0'; c <= '9'; c++) IS_URL_CHAR[c] = IS_MAIL_CHAR[c] = true;
+        for (char c = 'A'; c <= 'Z'; c++) IS_URL_CHAR[c] = IS_MAIL_CHAR[c] = true;
+        for (char c = 'a'; c <= 'z'; c++) IS_URL_CHAR[c] = IS_MAIL_CHAR[c] = true;
+        for (char c : URL_CHARS.toCharArray()) IS_URL_CHAR[c] = true;
+        for (char c : MAIL_CHARS.toCharArray()) IS_MAIL_CHAR[c] = true;
+    }
 
     private static final UrlTextFilter INSTANCE = new UrlTextFilter();
 
@@ -39,8 +64,138 @@ public class UrlTextFilter implements TextFilter {
 
     @Override
     public String filter(CharSequence text) {
-        String modified = URL_REGEX.matcher(text).replaceAll(" ");
-        return MAIL_REGEX.matcher(modified).replaceAll(" ");
+        if (indexOf(text, "://") == -1 && indexOf(text, "@") == -1) {
+            return text.toString();
+        }
+        char[] chars = new char[text.length()];
+        TextCleaner.getChars(text, chars.length, chars);
+        int length = filter(chars, chars.length);
+        return new String(chars, 0, length);
+    }
+
+    /**
+     * Same as {@link #filter}, in place in a buffer instead of creating Strings.
+     * The result is never longer than the input.
+     * @return the new length of the text in chars
+     */
+    static int filter(char[] chars, int length) {
+        boolean hasUrl = false;
+        boolean hasMail = false;
+        for (int i=0; i<length; i++) {
+            char c = chars[i];
+            if (c == '@') {
+                hasMail = true;
+            } else if (c == ':' && i + 2 < length && chars[i+1] == '/' && chars[i+2] == '/') {
+                hasUrl = true;
+            }
+        }
+        if (hasUrl) {
+            length = removeUrls(chars, length);
+        }
+        if (hasMail) {
+            length = removeMails(chars, length);
+        }
+        return length;
+    }
+
+    /**
+     * Replaces each URL by a space, in place.
+     * @return the new length
+     */
+    private static int removeUrls(char[] chars, int length) {
+        int kept = 0;
+        int i = 0;
+        while (i < length) {
+            char c = chars[i];
+            if (c == 'h') {
+                int end = urlEnd(chars, length, i);
+                if (end != -1) {
+                    chars[kept++] = ' ';
+                    i = end;
+                    continue;
+                }
+            }
+            chars[kept++] = c;
+            i++;
+        }
+        return kept;
+    }
+
+    /**
+     * @param start where the text has an 'h'
+     * @return the end (exclusive) of the URL starting there, -1 if there is none.
+     */
+    private static int urlEnd(char[] chars, int length, int start) {
+        int i = start + 1;
+        if (!startsWith(chars, length, i, "ttp")) return -1;
+        i += 3;
+        if (i < length && chars[i] == 's') i++;
+        if (!startsWith(chars, length, i, "://")) return -1;
+        i += 3;
+        int end = i;
+        while (end < length && isUrlChar(chars[end])) end++;
+        return end == i ? -1 : end;
+    }
+
+    /**
+     * Replaces each email address by a space, in place.
+     *
+     * <p>The local part is a maximal run of mail chars, it has to end with the '@'. The domain part is a
+     * mail char that is not a dot, followed by at least one more mail chars.</p>
+     *
+     * @return the new length
+     */
+    private static int removeMails(char[] chars, int length) {
+        int kept = 0;
+        int i = 0;
+        while (i < length) {
+            int run = i;
+            while (i < length && isMailChar(chars[i])) i++;
+            if (i > run && i + 2 < length && chars[i] == '@'
+                    && chars[i+1] != '.' && isMailChar(chars[i+1]) && isMailChar(chars[i+2])) {
+                int end = i + 3;
+                while (end < length && isMailChar(chars[end])) end++;
+                chars[kept++] = ' ';
+                i = end;
+                continue;
+            }
+            System.arraycopy(chars, run, chars, kept, i - run);
+            kept += i - run;
+            if (i < length) {
+                chars[kept++] = chars[i++];
+            }
+        }
+        return kept;
+    }
+
+    private static boolean isUrlChar(char c) {
+        return c < 128 && IS_URL_CHAR[c];
+    }
+
+    private static boolean isMailChar(char c) {
+        return c < 128 && IS_MAIL_CHAR[c];
+    }
+
+    private static boolean startsWith(char[] chars, int length, int start, String prefix) {
+        if (start + prefix.length() > length) return false;
+        for (int i=0; i<prefix.length(); i++) {
+            if (chars[start + i] != prefix.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static int indexOf(CharSequence text, String str) {
+        if (text instanceof String) {
+            return ((String) text).indexOf(str);
+        }
+        outer:
+        for (int i=0; i + str.length() <= text.length(); i++) {
+            for (int j=0; j<str.length(); j++) {
+                if (text.charAt(i + j) != str.charAt(j)) continue outer;
+            }
+            return i;
+        }
+        return -1;
     }
 
 }
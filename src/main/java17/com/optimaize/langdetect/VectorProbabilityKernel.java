@@ -0,0 +1,101 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.optimaize.langdetect;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A {@link ProbabilityKernel} using the SIMD instructions of the CPU through the incubating Vector API.
+ *
+ * <p>Compiled for Java 17 into the multi-release part of the jar. Needs {@code --add-modules jdk.incubator.vector}
+ * at runtime, otherwise the class can't be loaded and the scalar kernel is used instead.</p>
+ *
+ * <p>multiply() and addScaled() compute exactly the same values as the scalar kernel, it's the same operations
+ * per language. normalize() sums up in lanes, the last bits of the result may differ.</p>
+ */
+final class VectorProbabilityKernel extends ProbabilityKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    void multiply(@NotNull double[] prob, @NotNull double[] matrix, int offset, double weight, int count) {
+        int i = 0;
+        int bound = SPECIES.loopBound(prob.length);
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector factor = DoubleVector.fromArray(SPECIES, matrix, offset + i).add(weight);
+            DoubleVector p = DoubleVector.fromArray(SPECIES, prob, i);
+            for (int amount = 0; amount < count; amount++) {
+                p = p.mul(factor);
+            }
+            p.intoArray(prob, i);
+        }
+        for (; i < prob.length; i++) {
+            for (int amount = 0; amount < count; amount++) {
+                prob[i] *= (weight + matrix[offset + i]);
+            }
+        }
+    }
+
+    @Override
+    void addScaled(@NotNull double[] score, @NotNull double[] matrix, int offset, double factor) {
+        int i = 0;
+        int bound = SPECIES.loopBound(score.length);
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector m = DoubleVector.fromArray(SPECIES, matrix, offset + i).mul(factor);
+            DoubleVector.fromArray(SPECIES, score, i).add(m).intoArray(score, i);
+        }
+        for (; i < score.length; i++) {
+            score[i] += factor * matrix[offset + i];
+        }
+    }
+
+    @Override
+    double normalize(@NotNull double[] prob) {
+        int bound = SPECIES.loopBound(prob.length);
+        DoubleVector sums = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            sums = sums.add(DoubleVector.fromArray(SPECIES, prob, i));
+        }
+        double sump = sums.reduceLanes(VectorOperators.ADD);
+        for (; i < prob.length; i++) {
+            sump += prob[i];
+        }
+
+        DoubleVector maxs = DoubleVector.zero(SPECIES);
+        i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector p = DoubleVector.fromArray(SPECIES, prob, i).div(sump);
+            maxs = maxs.max(p);
+            p.intoArray(prob, i);
+        }
+        double maxp = maxs.reduceLanes(VectorOperators.MAX);
+        for (; i < prob.length; i++) {
+            double p = prob[i] / sump;
+            if (maxp < p) maxp = p;
+            prob[i] = p;
+        }
+        return maxp;
+    }
+
+    @Override
+    public String toString() {
+        return "VectorProbabilityKernel[" + SPECIES + "]";
+    }
+
+}
@@ -0,0 +1,56 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.optimaize.langdetect;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class CandidatesCacheTest {
+
+    @Test
+    public void getWhatWasPut() throws Exception {
+        CandidatesCache cache = new CandidatesCache(256);
+        LanguageCandidates a = new LanguageCandidates(new int[]{0}, null);
+        LanguageCandidates b = new LanguageCandidates(new int[]{1}, null);
+        assertNull(cache.get(3L));
+        cache.put(3L, a);
+        cache.put(1L << 63 | 5L, b);
+        assertSame(cache.get(3L), a);
+        assertSame(cache.get(1L << 63 | 5L), b);
+        assertNull(cache.get(5L));
+    }
+
+    @Test
+    public void collisionReplaces() throws Exception {
+        CandidatesCache cache = new CandidatesCache(2);
+        LanguageCandidates[] candidates = new LanguageCandidates[3];
+        for (int i=0; i<candidates.length; i++) {
+            candidates[i] = new LanguageCandidates(new int[]{i}, null);
+            cache.put(i + 1, candidates[i]);
+        }
+        //3 keys, 2 slots: at least one is gone, and no key gives the candidates of another.
+        int found = 0;
+        for (int i=0; i<candidates.length; i++) {
+            LanguageCandidates cached = cache.get(i + 1);
+            if (cached != null) {
+                assertSame(cached, candidates[i]);
+                found++;
+            }
+        }
+        assertTrue(found >= 1 && found <= 2);
+    }
+
+}
@@ -16,7 +16,11 @@
 
 package com.optimaize.langdetect;
 
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.optimaize.langdetect.i18n.LdLocale;
 import com.optimaize.langdetect.ngram.NgramExtractors;
+import com.optimaize.langdetect.profiles.BuiltInLanguages;
 import com.optimaize.langdetect.profiles.LanguageProfile;
 import com.optimaize.langdetect.profiles.LanguageProfileReader;
 import com.optimaize.langdetect.text.CommonTextObjectFactories;
@@ -28,9 +32,14 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Uses all built-in language profiles and tests some simple clean phrases as well as longer texts  against them
@@ -40,8 +49,12 @@ import static org.junit.Assert.assertEquals;
  */
 public class DataLanguageDetectorImplTest {
 
-    private final LanguageDetector shortDetector;
-    private final LanguageDetector longDetector;
+    private final BatchLanguageDetector shortDetector;
+    private final BatchLanguageDetector longDetector;
+    private final BatchLanguageDetector shortLogDetector;
+    private final BatchLanguageDetector longLogDetector;
+    private final BatchLanguageDetector exhaustiveDetector;
+    private final BatchLanguageDetector cappedExhaustiveDetector;
 
     public DataLanguageDetectorImplTest() throws IOException {
         List<LanguageProfile> languageProfiles = new LanguageProfileReader().readAllBuiltIn();
@@ -49,12 +62,37 @@ public class DataLanguageDetectorImplTest {
         shortDetector = LanguageDetectorBuilder.create(NgramExtractors.standard())
                 .shortTextAlgorithm(100)
                 .withProfiles(languageProfiles)
-                .build();
+                .buildBatch();
 
         longDetector = LanguageDetectorBuilder.create(NgramExtractors.standard())
                 .shortTextAlgorithm(0)
                 .withProfiles(new LanguageProfileReader().readAllBuiltIn())
-                .build();
+                .buildBatch();
+
+        shortLogDetector = LanguageDetectorBuilder.create(NgramExtractors.standard())
+                .shortTextAlgorithm(100)
+                .logScoring(true)
+                .withProfiles(languageProfiles)
+                .buildBatch();
+
+        longLogDetector = LanguageDetectorBuilder.create(NgramExtractors.standard())
+                .shortTextAlgorithm(0)
+                .logScoring(true)
+                .withProfiles(languageProfiles)
+                .buildBatch();
+
+        exhaustiveDetector = LanguageDetectorBuilder.create(NgramExtractors.standard())
+                .shortTextAlgorithm(0)
+                .exhaustiveLongText(true)
+                .withProfiles(languageProfiles)
+                .buildBatch();
+
+        cappedExhaustiveDetector = LanguageDetectorBuilder.create(NgramExtractors.standard())
+                .shortTextAlgorithm(0)
+                .exhaustiveLongText(true)
+                .maxDistinctGrams(200)
+                .withProfiles(languageProfiles)
+                .buildBatch();
     }
 
     @Test(dataProvider = "shortCleanTexts")
@@ -75,6 +113,345 @@ public class DataLanguageDetectorImplTest {
         assertEquals(longDetector.detect(text).get().getLanguage(), expectedLanguage);
     }
 
+    @Test(dataProvider = "shortCleanTexts")
+    public void shortTextAlgoLogScoring(String expectedLanguage, CharSequence text) throws IOException {
+        assertSameBest(shortLogDetector.getProbabilities(text), shortDetector.getProbabilities(text), expectedLanguage);
+    }
+
+    @Test(dataProvider = "shortCleanTexts")
+    public void longTextAlgoLogScoringWorkingOnShortText(String expectedLanguage, CharSequence text) throws IOException {
+        assertSameBest(longLogDetector.getProbabilities(text), longDetector.getProbabilities(text), expectedLanguage);
+    }
+
+    @Test(dataProvider = "longerWikipediaTexts")
+    public void longTextAlgoLogScoringWorkingOnLongText(String expectedLanguage, CharSequence text) throws IOException {
+        assertSameBest(longLogDetector.getProbabilities(text), longDetector.getProbabilities(text), expectedLanguage);
+        assertEquals(longLogDetector.detect(text).get().getLanguage(), expectedLanguage);
+    }
+
+    @Test(dataProvider = "shortCleanTexts")
+    public void exhaustiveLongTextAlgoWorkingOnShortText(String expectedLanguage, CharSequence text) throws IOException {
+        assertEquals(exhaustiveDetector.getProbabilities(text).get(0).getLocale().getLanguage(), expectedLanguage);
+    }
+
+    @Test(dataProvider = "longerWikipediaTexts")
+    public void exhaustiveLongTextAlgoWorkingOnLongText(String expectedLanguage, CharSequence text) throws IOException {
+        assertEquals(exhaustiveDetector.detect(text).get().getLanguage(), expectedLanguage);
+        assertEquals(cappedExhaustiveDetector.detect(text).get().getLanguage(), expectedLanguage);
+    }
+
+    @Test(dataProvider = "longerWikipediaTexts")
+    public void exhaustiveLongTextAlgoIgnoresSeed(String expectedLanguage, CharSequence text) throws IOException {
+        List<LanguageProfile> profiles = new LanguageProfileReader().read(ImmutableList.of("de", "fr", "it", "es"));
+        List<DetectedLanguage> first = LanguageDetectorBuilder.create(NgramExtractors.standard())
+                .shortTextAlgorithm(0)
+                .exhaustiveLongText(true)
+                .withProfiles(profiles)
+                .build()
+                .getProbabilities(text);
+        List<DetectedLanguage> second = LanguageDetectorBuilder.create(NgramExtractors.standard())
+                .shortTextAlgorithm(0)
+                .exhaustiveLongText(true)
+                .seed(123L)
+                .withProfiles(profiles)
+                .build()
+                .getProbabilities(text);
+        assertEquals(first.toString(), second.toString());
+    }
+
+    @Test
+    public void detectAllSameAsOneByOne() throws Exception {
+        List<CharSequence> texts = batchTexts();
+        for (BatchLanguageDetector detector : new BatchLanguageDetector[]{shortDetector, longDetector, longLogDetector, exhaustiveDetector}) {
+            assertSameAsOneByOne(detector, texts, detector.detectAll(texts));
+        }
+    }
+
+    @Test
+    public void detectAllWithExecutor() throws Exception {
+        List<CharSequence> texts = new ArrayList<>();
+        for (int i=0; i<5; i++) {
+            texts.addAll(batchTexts()); //more than one chunk
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            assertSameAsOneByOne(shortDetector, texts, shortDetector.detectAll(texts, executor));
+            assertEquals(shortDetector.detectAll(new ArrayList<CharSequence>(), executor).size(), 0);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void detectWithReusedContext() throws Exception {
+        List<CharSequence> texts = batchTexts();
+        DetectionContext context = new DetectionContext();
+        DetectionResult result = new DetectionResult();
+        //one context for all detectors, the buffers are made to fit:
+        for (BatchLanguageDetector detector : new BatchLanguageDetector[]{shortDetector, longDetector, longLogDetector, exhaustiveDetector}) {
+            for (CharSequence text : texts) {
+                detector.detect(text, context, result);
+                List<DetectedLanguage> expected = detector.getProbabilities(text);
+                assertEquals(result.toList().toString(), expected.toString());
+                assertEquals(result.size(), expected.size());
+                if (!expected.isEmpty()) {
+                    assertEquals(result.getLocale(0), expected.get(0).getLocale());
+                    assertEquals(result.getProbability(0), expected.get(0).getProbability(), 0d);
+                }
+                assertEquals(Optional.fromNullable(result.getConfidentLanguage()), detector.detect(text));
+            }
+        }
+    }
+
+    @Test
+    public void detectTop() throws Exception {
+        List<CharSequence> texts = batchTexts();
+        DetectionContext context = new DetectionContext();
+        for (BatchLanguageDetector detector : new BatchLanguageDetector[]{shortDetector, longDetector, longLogDetector, exhaustiveDetector}) {
+            for (CharSequence text : texts) {
+                List<DetectedLanguage> expected = detector.getProbabilities(text);
+                for (int k=0; k<=3; k++) {
+                    int[] languageIndexes = new int[k];
+                    double[] probabilities = new double[k];
+                    int size = detector.detectTop(text, context, languageIndexes, probabilities);
+                    assertEquals(size, Math.min(k, expected.size()));
+                    for (int i=0; i<size; i++) {
+                        assertEquals(context.getLanguage(languageIndexes[i]), expected.get(i).getLocale());
+                        assertEquals(probabilities[i], expected.get(i).getProbability(), 0d);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The compact precisions that are documented to give the same best language.
+     */
+    @Test
+    public void compactPrecision() throws Exception {
+        List<LanguageProfile> languageProfiles = new LanguageProfileReader().readAllBuiltIn();
+        for (ProbabilityPrecision precision : new ProbabilityPrecision[]{ProbabilityPrecision.FLOAT, ProbabilityPrecision.LOG16}) {
+            LanguageDetector detector = LanguageDetectorBuilder.create(NgramExtractors.standard())
+                    .shortTextAlgorithm(100)
+                    .probabilityPrecision(precision)
+                    .withProfiles(languageProfiles)
+                    .build();
+            for (CharSequence text : batchTexts()) {
+                List<DetectedLanguage> expected = shortDetector.getProbabilities(text);
+                List<DetectedLanguage> actual = detector.getProbabilities(text);
+                assertEquals(actual.isEmpty(), expected.isEmpty());
+                if (!expected.isEmpty()) {
+                    assertEquals(actual.get(0).getLocale(), expected.get(0).getLocale());
+                    assertEquals(actual.get(0).getProbability(), expected.get(0).getProbability(), 0.00001d);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void sparseGrams() throws Exception {
+        List<LanguageProfile> languageProfiles = new LanguageProfileReader().readAllBuiltIn();
+        for (int shortTextAlgorithm : new int[]{100, 0}) {
+            LanguageDetector reference = (shortTextAlgorithm == 0) ? longDetector : shortDetector;
+            LanguageDetector detector = LanguageDetectorBuilder.create(NgramExtractors.standard())
+                    .shortTextAlgorithm(shortTextAlgorithm)
+                    .sparseGrams(16)
+                    .withProfiles(languageProfiles)
+                    .build();
+            for (CharSequence text : batchTexts()) {
+                List<DetectedLanguage> expected = reference.getProbabilities(text);
+                List<DetectedLanguage> actual = detector.getProbabilities(text);
+                assertEquals(actual.size(), expected.size());
+                for (int i=0; i<expected.size(); i++) {
+                    assertEquals(actual.get(i).getLocale(), expected.get(i).getLocale());
+                    assertEquals(actual.get(i).getProbability(), expected.get(i).getProbability(), 1e-9);
+                }
+            }
+        }
+    }
+
+    /**
+     * Leaving out the languages without the script of the text gives the same results, up to rounding.
+     */
+    @Test
+    public void scriptPruning() throws Exception {
+        List<CharSequence> texts = batchTexts();
+        texts.add("Η Ελλάδα είναι χώρα της νοτιοανατολικής Ευρώπης.");
+        texts.add("대한민국은 동아시아의 한반도 남부에 있는 민주공화국이다.");
+        texts.add("ประเทศไทยมีชื่ออย่างเป็นทางการว่าราชอาณาจักรไทย");
+        texts.add("日本国は東アジアに位置する島国である。");
+        texts.add("Россия — государство в Восточной Европе и Северной Азии.");
+        texts.add("Москва (Moscow) и Санкт-Петербург (Saint Petersburg)");
+        List<LanguageProfile> languageProfiles = new LanguageProfileReader().readAllBuiltIn();
+        for (LanguageDetectorBuilder builder : new LanguageDetectorBuilder[]{
+                LanguageDetectorBuilder.create(NgramExtractors.standard()).shortTextAlgorithm(100),
+                LanguageDetectorBuilder.create(NgramExtractors.standard()).shortTextAlgorithm(0),
+                LanguageDetectorBuilder.create(NgramExtractors.standard()).shortTextAlgorithm(100).logScoring(true),
+                LanguageDetectorBuilder.create(NgramExtractors.standard()).shortTextAlgorithm(0).logScoring(true),
+                LanguageDetectorBuilder.create(NgramExtractors.standard()).shortTextAlgorithm(0).exhaustiveLongText(true)}) {
+            LanguageDetector reference = builder.withProfiles(languageProfiles).build();
+            LanguageDetector detector = builder.scriptPruning(0.3).build();
+            for (CharSequence text : texts) {
+                List<DetectedLanguage> expected = reference.getProbabilities(text);
+                List<DetectedLanguage> actual = detector.getProbabilities(text);
+                assertEquals(actual.size(), expected.size());
+                for (int i=0; i<expected.size(); i++) {
+                    assertEquals(actual.get(i).getLocale(), expected.get(i).getLocale());
+                    assertEquals(actual.get(i).getProbability(), expected.get(i).getProbability(), 0.00001d);
+                }
+                assertEquals(detector.detect(text), reference.detect(text));
+            }
+        }
+    }
+
+    /**
+     * Detecting the group first gives the expected language on the clean texts, and on most of the
+     * snippets the same best language as without groups.
+     */
+    @Test
+    public void languageGroups() throws Exception {
+        List<LanguageProfile> languageProfiles = new LanguageProfileReader().readAllBuiltIn();
+        for (int shortTextAlgorithm : new int[]{100, 0}) {
+            LanguageDetector reference = (shortTextAlgorithm == 0) ? longDetector : shortDetector;
+            LanguageDetector detector = LanguageDetectorBuilder.create(NgramExtractors.standard())
+                    .shortTextAlgorithm(shortTextAlgorithm)
+                    .languageGroups(BuiltInLanguages.getLanguageGroups())
+                    .withProfiles(languageProfiles)
+                    .build();
+            for (Object[] row : shortCleanTexts()) {
+                assertEquals(detector.getProbabilities((CharSequence) row[1]).get(0).getLocale().getLanguage(), row[0]);
+            }
+            for (Object[] row : longerWikipediaTexts()) {
+                assertEquals(detector.detect((CharSequence) row[1]).get().getLanguage(), row[0]);
+            }
+            List<CharSequence> texts = batchTexts();
+            int same = 0;
+            for (CharSequence text : texts) {
+                List<DetectedLanguage> expected = reference.getProbabilities(text);
+                List<DetectedLanguage> actual = detector.getProbabilities(text);
+                if (expected.isEmpty() ? actual.isEmpty() : !actual.isEmpty() && actual.get(0).getLocale().equals(expected.get(0).getLocale())) {
+                    same++;
+                }
+            }
+            assertTrue(same + " of " + texts.size(), same >= texts.size() * 0.97);
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void languageInTwoGroups() throws Exception {
+        LanguageDetectorBuilder.create(NgramExtractors.standard())
+                .languageGroups(ImmutableList.of(
+                        ImmutableList.of(LdLocale.fromString("de"), LdLocale.fromString("nl")),
+                        ImmutableList.of(LdLocale.fromString("en"), LdLocale.fromString("de"))));
+    }
+
+    @Test
+    public void builtInLanguageGroups() throws Exception {
+        List<LdLocale> grouped = new ArrayList<>();
+        for (List<LdLocale> group : BuiltInLanguages.getLanguageGroups()) {
+            grouped.addAll(group);
+        }
+        assertEquals(grouped.size(), BuiltInLanguages.getLanguages().size());
+        assertEquals(new HashSet<>(grouped), new HashSet<>(BuiltInLanguages.getLanguages()));
+    }
+
+    /**
+     * Text in 2 languages is where detect() stops with the trials early, it must still agree with the
+     * probabilities.
+     */
+    @Test
+    public void detectOnMixedText() throws Exception {
+        List<CharSequence> texts = new ArrayList<>();
+        Object[][] rows = longerWikipediaTexts();
+        for (int i=0; i<rows.length; i++) {
+            CharSequence first = (CharSequence) rows[i][1];
+            CharSequence second = (CharSequence) rows[(i + 1) % rows.length][1];
+            texts.add(first.subSequence(0, Math.min(first.length(), 200)) + " " + second.subSequence(0, Math.min(second.length(), 200)));
+        }
+        texts.addAll(batchTexts());
+        int absent = 0;
+        for (LanguageDetector detector : new LanguageDetector[]{shortDetector, longDetector, longLogDetector, exhaustiveDetector}) {
+            for (CharSequence text : texts) {
+                List<DetectedLanguage> probabilities = detector.getProbabilities(text);
+                Optional<LdLocale> expected = (probabilities.isEmpty() || probabilities.get(0).getProbability() < 0.9999)
+                        ? Optional.<LdLocale>absent() : Optional.of(probabilities.get(0).getLocale());
+                Optional<LdLocale> detected = detector.detect(text);
+                assertEquals(text.toString(), expected, detected);
+                if (!detected.isPresent()) absent++;
+            }
+        }
+        assertTrue(absent > 0);
+    }
+
+    /**
+     * The early accept answers the same as the full trials on nearly all texts, also on snippets and mixed
+     * text.
+     */
+    @Test
+    public void earlyAccept() throws Exception {
+        List<CharSequence> texts = batchTexts();
+        Object[][] rows = longerWikipediaTexts();
+        for (int i=0; i<rows.length; i++) {
+            CharSequence text = (CharSequence) rows[i][1];
+            for (int start=0; start + 100 <= text.length(); start += 100) {
+                texts.add(text.subSequence(start, start + 100));
+            }
+            CharSequence next = (CharSequence) rows[(i + 1) % rows.length][1];
+            texts.add(text.subSequence(0, Math.min(text.length(), 200)) + " " + next.subSequence(0, Math.min(next.length(), 200)));
+        }
+        List<LanguageProfile> languageProfiles = new LanguageProfileReader().readAllBuiltIn();
+        for (boolean logScoring : new boolean[]{false, true}) {
+            LanguageDetector reference = logScoring ? longLogDetector : longDetector;
+            LanguageDetector detector = LanguageDetectorBuilder.create(NgramExtractors.standard())
+                    .shortTextAlgorithm(0)
+                    .logScoring(logScoring)
+                    .earlyAccept(true)
+                    .withProfiles(languageProfiles)
+                    .build();
+            int same = 0;
+            for (CharSequence text : texts) {
+                if (detector.detect(text).equals(reference.detect(text))) same++;
+            }
+            assertTrue(same + " of " + texts.size(), same >= texts.size() * 0.98);
+        }
+    }
+
+    private List<CharSequence> batchTexts() {
+        List<CharSequence> texts = new ArrayList<>();
+        for (Object[] row : shortCleanTexts()) {
+            texts.add((CharSequence) row[1]);
+        }
+        texts.add("");
+        texts.add("12345 ... !!!");
+        for (Object[] row : longerWikipediaTexts()) {
+            texts.add((CharSequence) row[1]);
+        }
+        return texts;
+    }
+
+    private void assertSameAsOneByOne(LanguageDetector detector, List<CharSequence> texts, BatchDetectionResult result) {
+        assertEquals(result.size(), texts.size());
+        for (int i=0; i<texts.size(); i++) {
+            List<DetectedLanguage> expected = detector.getProbabilities(texts.get(i));
+            assertEquals(result.getProbabilities(i).toString(), expected.toString());
+            assertEquals(result.getNumLanguages(i), expected.size());
+            if (!expected.isEmpty()) {
+                assertEquals(result.getLocale(i, 0), expected.get(0).getLocale());
+                assertEquals(result.getProbability(i, 0), expected.get(0).getProbability(), 0d);
+            }
+            assertEquals(result.getLanguage(i), detector.detect(texts.get(i)));
+        }
+    }
+
+    /**
+     * Log scoring must give the same best language as the linear one, within the documented tolerance.
+     */
+    private void assertSameBest(List<DetectedLanguage> log, List<DetectedLanguage> linear, String expectedLanguage) {
+        assertEquals(log.get(0).getLocale().getLanguage(), expectedLanguage);
+        assertEquals(log.get(0).getLocale(), linear.get(0).getLocale());
+        assertEquals(log.get(0).getProbability(), linear.get(0).getProbability(), 0.001d);
+    }
+
     @DataProvider
     protected Object[][] shortCleanTexts() {
         return new Object[][] {
@@ -0,0 +1,150 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.optimaize.langdetect;
+
+import com.google.common.collect.ImmutableList;
+import com.optimaize.langdetect.i18n.LdLocale;
+import com.optimaize.langdetect.ngram.NgramExtractors;
+import com.optimaize.langdetect.profiles.LanguageProfileReader;
+import com.optimaize.langdetect.text.CommonTextObjectFactories;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.*;
+
+public class LazyLanguageDetectorTest {
+
+    private static final List<LdLocale> LANGUAGES = ImmutableList.of(
+            LdLocale.fromString("de"), LdLocale.fromString("fr"), LdLocale.fromString("it"), LdLocale.fromString("es"));
+
+    private static final CharSequence TEXT = CommonTextObjectFactories.forDetectingShortCleanText().forText("Ceci est un texte français.");
+
+    /**
+     * Runs the tasks only when told to.
+     */
+    private static class ManualExecutor implements Executor {
+        private final List<Runnable> tasks = new ArrayList<>();
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+        void runAll() {
+            for (Runnable task : tasks) task.run();
+            tasks.clear();
+        }
+    }
+
+    @Test
+    public void sameAsEager() throws Exception {
+        LanguageDetector eager = LanguageDetectorBuilder.create(NgramExtractors.standard())
+                .withProfiles(new LanguageProfileReader().readBuiltIn(LANGUAGES))
+                .build();
+        LanguageDetector lazy = LanguageDetectorBuilder.create(NgramExtractors.standard())
+                .withLazyBuiltInLanguages(LANGUAGES)
+                .build();
+        assertEquals(lazy.getProbabilities(TEXT).toString(), eager.getProbabilities(TEXT).toString());
+        assertEquals(lazy.detect(TEXT), eager.detect(TEXT));
+    }
+
+    @Test
+    public void loadsOnFirstUse() throws Exception {
+        ManualExecutor executor = new ManualExecutor();
+        LazyLanguageDetector lazy = (LazyLanguageDetector) LanguageDetectorBuilder.create(NgramExtractors.standard())
+                .withLazyBuiltInLanguages(LANGUAGES)
+                .lazyLoadingExecutor(executor)
+                .lazyLoadingTimeout(0, TimeUnit.MILLISECONDS)
+                .build();
+        assertTrue(executor.tasks.isEmpty());
+
+        //not loaded yet, and there are no first languages:
+        assertTrue(lazy.getProbabilities(TEXT).isEmpty());
+        assertFalse(lazy.detect(TEXT).isPresent());
+        assertEquals(lazy.detectAll(ImmutableList.of(TEXT, TEXT)).getNumLanguages(1), 0);
+        assertEquals(executor.tasks.size(), 1);
+
+        executor.runAll();
+        assertTrue(lazy.isLoaded());
+        assertEquals(lazy.getProbabilities(TEXT).get(0).getLocale().getLanguage(), "fr");
+    }
+
+    @Test
+    public void firstLanguagesWhileLoading() throws Exception {
+        ManualExecutor executor = new ManualExecutor();
+        LanguageDetector lazy = LanguageDetectorBuilder.create(NgramExtractors.standard())
+                .withLazyBuiltInLanguages(LANGUAGES)
+                .lazyFirstLanguages(ImmutableList.of(LdLocale.fromString("de")))
+                .lazyLoadingExecutor(executor)
+                .lazyLoadingTimeout(0, TimeUnit.MILLISECONDS)
+                .build();
+        List<DetectedLanguage> first = lazy.getProbabilities(TEXT);
+        assertEquals(first.size(), 1);
+        assertEquals(first.get(0).getLocale().getLanguage(), "de");
+
+        executor.runAll();
+        assertEquals(lazy.getProbabilities(TEXT).get(0).getLocale().getLanguage(), "fr");
+    }
+
+    @Test
+    public void executorRejects() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+        LanguageDetector lazy = LanguageDetectorBuilder.create(NgramExtractors.standard())
+                .withLazyBuiltInLanguages(LANGUAGES)
+                .lazyLoadingExecutor(executor)
+                .build();
+        assertEquals(lazy.getProbabilities(TEXT).get(0).getLocale().getLanguage(), "fr");
+        assertEquals(lazy.detect(TEXT).get().getLanguage(), "fr");
+    }
+
+    @Test
+    public void interruptedWhileWaiting() throws Exception {
+        ManualExecutor executor = new ManualExecutor();
+        LanguageDetector lazy = LanguageDetectorBuilder.create(NgramExtractors.standard())
+                .withLazyBuiltInLanguages(LANGUAGES)
+                .lazyLoadingExecutor(executor)
+                .build();
+        Thread.currentThread().interrupt();
+        try {
+            assertTrue(lazy.getProbabilities(TEXT).isEmpty());
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+        executor.runAll();
+        assertEquals(lazy.getProbabilities(TEXT).get(0).getLocale().getLanguage(), "fr");
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void loadingFails() throws Exception {
+        LanguageDetectorBuilder.create(NgramExtractors.standard())
+                .withLazyBuiltInLanguages(ImmutableList.of(LdLocale.fromString("xx")))
+                .build()
+                .detect(TEXT);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void notTogetherWithProfiles() throws Exception {
+        LanguageDetectorBuilder.create(NgramExtractors.standard())
+                .withProfiles(new LanguageProfileReader().readBuiltIn(LANGUAGES))
+                .withLazyBuiltInLanguages(LANGUAGES);
+    }
+
+}
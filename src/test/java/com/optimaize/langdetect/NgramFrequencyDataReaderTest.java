@@ -0,0 +1,144 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.optimaize.langdetect;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.optimaize.langdetect.i18n.LdLocale;
+import com.optimaize.langdetect.ngram.NgramExtractors;
+import com.optimaize.langdetect.profiles.LanguageProfile;
+import com.optimaize.langdetect.profiles.LanguageProfileBuilder;
+import com.optimaize.langdetect.profiles.LanguageProfileReader;
+import com.optimaize.langdetect.text.CommonTextObjectFactories;
+import com.optimaize.langdetect.text.TextObjectFactory;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+/**
+ * Round trips through the {@link NgramFrequencyDataWriter}.
+ */
+public class NgramFrequencyDataReaderTest {
+
+    @Test
+    public void roundTripFile() throws Exception {
+        List<LanguageProfile> profiles = new LanguageProfileReader().read(ImmutableList.of("de", "fr", "it", "es"));
+        NgramFrequencyData data = NgramFrequencyData.create(profiles, ImmutableList.of(1, 2, 3));
+        File file = File.createTempFile("ngram-frequencies", ".bin");
+        try {
+            new NgramFrequencyDataWriter().write(data, file);
+            NgramFrequencyData read = new NgramFrequencyDataReader().read(file);
+            assertSameData(read, data);
+
+            TextObjectFactory textObjectFactory = CommonTextObjectFactories.forDetectingShortCleanText();
+            LanguageDetector fromProfiles = LanguageDetectorBuilder.create(NgramExtractors.standard()).withFrequencyData(data).build();
+            LanguageDetector fromFile = LanguageDetectorBuilder.create(NgramExtractors.standard()).withFrequencyData(read).build();
+            for (String text : new String[]{"Dies ist eine deutsche Text", "Ceci est un texte français.", "Questo è un testo italiano."}) {
+                assertEquals(fromFile.getProbabilities(textObjectFactory.forText(text)).toString(),
+                        fromProfiles.getProbabilities(textObjectFactory.forText(text)).toString());
+            }
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void roundTripStreamWithLongGrams() throws Exception {
+        LanguageProfile en = new LanguageProfileBuilder(LdLocale.fromString("en"))
+                .addGram("abcd", 3)
+                .addGram("bcde", 1)
+                .addGram("abc", 2)
+                .build();
+        LanguageProfile de = new LanguageProfileBuilder(LdLocale.fromString("de"))
+                .addGram("äöüß", 1)
+                .addGram("abc", 1)
+                .addGram("xyz", 3)
+                .build();
+        NgramFrequencyData data = NgramFrequencyData.create(ImmutableList.of(en, de), ImmutableSet.of(4, 3));
+        NgramFrequencyData read = new NgramFrequencyDataReader().read(new ByteArrayInputStream(write(data)));
+        assertSameData(read, data);
+        assertEquals(read.getGramLengths(), ImmutableList.of(3, 4));
+        assertEquals(read.getProbabilities("äöüß"), new double[]{0d, 1d});
+    }
+
+    @Test
+    public void roundTripKeepsStorage() throws Exception {
+        List<LanguageProfile> profiles = new LanguageProfileReader().read(ImmutableList.of("de", "fr", "it", "es"));
+        NgramFrequencyData data = NgramFrequencyData.create(profiles, ImmutableList.of(1, 2, 3));
+        int doubleSize = write(data).length;
+        for (ProbabilityPrecision precision : ProbabilityPrecision.values()) {
+            NgramFrequencyData stored = data.withPrecision(precision).withSparseGrams(2);
+            byte[] bytes = write(stored);
+            if (precision != ProbabilityPrecision.DOUBLE) {
+                assertTrue(bytes.length < doubleSize, precision+": "+bytes.length+" >= "+doubleSize);
+            }
+            NgramFrequencyData read = new NgramFrequencyDataReader().read(new ByteArrayInputStream(bytes));
+            assertEquals(read.getPrecision(), precision);
+            assertEquals(read.getSparseGramLanguages(), 2);
+            for (int i=0; i<stored.getNumGrams(); i++) {
+                String gram = stored.getGram(i);
+                double[] expected = stored.getProbabilities(gram);
+                double[] actual = read.getProbabilities(gram);
+                for (int lang=0; lang<expected.length; lang++) {
+                    assertEquals(actual[lang], expected[lang], 1e-6 * expected[lang], precision+" "+gram);
+                }
+            }
+        }
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void notTheFormat() throws Exception {
+        new NgramFrequencyDataReader().read(new ByteArrayInputStream("{\"freq\":{}}".getBytes("UTF-8")));
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void truncated() throws Exception {
+        LanguageProfile en = new LanguageProfileBuilder(LdLocale.fromString("en")).addGram("abc", 2).build();
+        byte[] bytes = write(NgramFrequencyData.create(ImmutableList.of(en), ImmutableSet.of(3)));
+        new NgramFrequencyDataReader().read(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 1)));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void builderChecksGramLengths() throws Exception {
+        LanguageProfile en = new LanguageProfileBuilder(LdLocale.fromString("en")).addGram("abc", 2).build();
+        NgramFrequencyData data = NgramFrequencyData.create(ImmutableList.of(en), ImmutableSet.of(3));
+        LanguageDetectorBuilder.create(NgramExtractors.standard()).withFrequencyData(data);
+    }
+
+    private static byte[] write(NgramFrequencyData data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new NgramFrequencyDataWriter().write(data, out);
+        return out.toByteArray();
+    }
+
+    private static void assertSameData(NgramFrequencyData actual, NgramFrequencyData expected) {
+        assertEquals(actual.getLanguageList(), expected.getLanguageList());
+        assertEquals(actual.getGramLengths(), expected.getGramLengths());
+        assertEquals(actual.getNumGrams(), expected.getNumGrams());
+        for (int i=0; i<expected.getNumGrams(); i++) {
+            String gram = expected.getGram(i);
+            assertEquals(actual.getGram(i), gram);
+            assertEquals(actual.getProbabilities(gram), expected.getProbabilities(gram));
+        }
+    }
+
+}
@@ -16,9 +16,12 @@
 
 package com.optimaize.langdetect;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.optimaize.langdetect.i18n.LdLocale;
+import com.optimaize.langdetect.ngram.PackedNgram;
 import com.optimaize.langdetect.profiles.LanguageProfile;
+import com.optimaize.langdetect.profiles.LanguageProfileBuilder;
 import com.optimaize.langdetect.profiles.LanguageProfileReader;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -26,6 +29,7 @@ import org.junit.Test;
 import java.io.IOException;
 import java.util.List;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
@@ -78,4 +82,39 @@ public class NgramFrequencyDataTest {
         assertEquals(allThreeGrams.getProbabilities("da"), null);
     }
 
+    @Test
+    public void packedLookupSameAsString() throws Exception {
+        for (String gram : new String[]{"dam", " da", "er ", "xyz"}) {
+            assertArrayEquals(allThreeGrams.getProbabilities(PackedNgram.pack(gram)), allThreeGrams.getProbabilities(gram), 0d);
+        }
+        assertEquals(allThreeGrams.getProbabilities(PackedNgram.pack("da")), null);
+    }
+
+    @Test
+    public void probabilitiesOfLongGrams() throws Exception {
+        LanguageProfile profile = new LanguageProfileBuilder(LdLocale.fromString("en"))
+                .addGram("abcd", 3)
+                .addGram("bcde", 1)
+                .addGram("abc", 2)
+                .build();
+        NgramFrequencyData data = NgramFrequencyData.create(ImmutableList.of(profile), ImmutableSet.of(3, 4));
+        assertEquals(data.getNumGrams(), 3);
+        assertArrayEquals(data.getProbabilities("abcd"), new double[]{0.75}, 0d);
+        assertArrayEquals(data.getProbabilities("bcde"), new double[]{0.25}, 0d);
+        assertArrayEquals(data.getProbabilities("abc"), new double[]{1d}, 0d);
+        assertEquals(data.getProbabilities("abce"), null);
+    }
+
+    @Test
+    public void mergedGroupsAreNotLanguages() throws Exception {
+        LanguageProfile en = new LanguageProfileBuilder(LdLocale.fromString("en")).addGram("abc", 1).build();
+        LanguageProfile de = new LanguageProfileBuilder(LdLocale.fromString("de")).addGram("xyz", 1).build();
+        LanguageProfile fr = new LanguageProfileBuilder(LdLocale.fromString("fr")).addGram("abc", 1).build();
+        NgramFrequencyData data = NgramFrequencyData.create(ImmutableList.of(en, de, fr), ImmutableSet.of(3));
+        NgramFrequencyData merged = data.mergeLanguages(new int[][]{{0, 2}, {1}});
+        assertEquals(merged.getLanguageList(), ImmutableList.of(LdLocale.fromString("qaa"), LdLocale.fromString("qab")));
+        assertArrayEquals(merged.getProbabilities("abc"), new double[]{1d, 0d}, 0d);
+        assertArrayEquals(merged.getProbabilities("xyz"), new double[]{0d, 1d}, 0d);
+    }
+
 }
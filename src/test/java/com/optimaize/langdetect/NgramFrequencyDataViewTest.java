@@ -0,0 +1,155 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.optimaize.langdetect;
+
+import com.google.common.collect.ImmutableList;
+import com.optimaize.langdetect.i18n.LdLocale;
+import com.optimaize.langdetect.ngram.NgramExtractors;
+import com.optimaize.langdetect.profiles.LanguageProfileReader;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+/**
+ * A view of some languages must behave the same as data created from the profiles of these languages only.
+ */
+public class NgramFrequencyDataViewTest {
+
+    private static final List<String> LANGUAGES = ImmutableList.of("it", "de", "nl", "fr");
+
+    private static final List<String> TEXTS = ImmutableList.of(
+            "Dies ist ein deutscher Text, und er ist nicht sehr lang.",
+            "Ceci est un texte en français, pas très long non plus.",
+            "Questo è un testo italiano, e non è molto lungo.",
+            "Dit is een Nederlandse tekst, en hij is ook niet lang.",
+            "This is English, which none of the languages knows.",
+            "Это русский текст, ни один из этих языков его не знает.",
+            "Die Stadt liegt am Ufer des Flusses und hat ungefähr zwanzigtausend Einwohner. Sie wurde im Mittelalter "
+                    + "gegründet und war lange Zeit ein wichtiger Handelsplatz für Salz, Holz und Wein aus der Umgebung. "
+                    + "La ville est située au bord du fleuve et compte environ vingt mille habitants.",
+            "La città si trova sulla riva del fiume e conta circa ventimila abitanti. Fu fondata nel medioevo e per "
+                    + "molto tempo fu un importante centro di commercio per il sale, il legno e il vino della regione."
+    );
+
+    private final NgramFrequencyData master;
+    private final NgramFrequencyData fresh;
+    private final NgramFrequencyData view;
+
+    public NgramFrequencyDataViewTest() throws Exception {
+        master = NgramFrequencyData.create(new LanguageProfileReader().readAllBuiltIn(), ImmutableList.of(1, 2, 3));
+        fresh = NgramFrequencyData.create(new LanguageProfileReader().read(LANGUAGES), ImmutableList.of(1, 2, 3));
+        view = master.forLanguages(fresh.getLanguageList());
+    }
+
+    @Test
+    public void sameAsCreatedFromProfiles() throws Exception {
+        assertEquals(view.getLanguageList(), fresh.getLanguageList());
+        assertEquals(view.getGramLengths(), fresh.getGramLengths());
+        assertSameGrams(view, fresh);
+    }
+
+    @Test
+    public void viewOfView() throws Exception {
+        List<LdLocale> all = new ArrayList<>(master.getLanguageList());
+        Collections.reverse(all);
+        NgramFrequencyData reversed = master.forLanguages(all);
+        assertSameGrams(reversed.forLanguages(fresh.getLanguageList()), fresh);
+        assertSame(view.forLanguages(view.getLanguageList()), view);
+        assertSame(master.forLanguages(master.getLanguageList()), master);
+    }
+
+    @Test
+    public void compactStorage() throws Exception {
+        NgramFrequencyData sparse = master.withSparseGrams(3);
+        assertSameGrams(sparse.forLanguages(fresh.getLanguageList()), fresh);
+        //converting a view converts the data it was made from:
+        assertSameGrams(view.withSparseGrams(3), fresh);
+        assertEquals(view.withSparseGrams(3).getLanguageList(), fresh.getLanguageList());
+    }
+
+    @Test
+    public void detectorSameAsCreatedFromProfiles() throws Exception {
+        for (NgramFrequencyData data : new NgramFrequencyData[]{master, master.withSparseGrams(16)}) {
+            for (int shortTextAlgorithm : new int[]{100, 0}) {
+                LanguageDetector expectedDetector = detector(fresh, shortTextAlgorithm);
+                LanguageDetector actualDetector = detector(data.forLanguages(fresh.getLanguageList()), shortTextAlgorithm);
+                for (String text : TEXTS) {
+                    List<DetectedLanguage> expected = expectedDetector.getProbabilities(text);
+                    List<DetectedLanguage> actual = actualDetector.getProbabilities(text);
+                    assertEquals(actual.size(), expected.size(), text);
+                    for (int i=0; i<expected.size(); i++) {
+                        assertEquals(actual.get(i).getLocale(), expected.get(i).getLocale(), text);
+                        assertEquals(actual.get(i).getProbability(), expected.get(i).getProbability(), 1e-9, text);
+                    }
+                    assertEquals(actualDetector.detect(text), expectedDetector.detect(text), text);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void writtenWithTheLanguagesOfTheView() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new NgramFrequencyDataWriter().write(view, out);
+        NgramFrequencyData read = new NgramFrequencyDataReader().read(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(read.getLanguageList(), fresh.getLanguageList());
+        assertEquals(read.getNumGrams(), fresh.getNumGrams());
+        assertSameGrams(read, fresh);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void languageNotInView() throws Exception {
+        view.forLanguages(ImmutableList.of(LdLocale.fromString("en")));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void languageTwice() throws Exception {
+        master.forLanguages(ImmutableList.of(LdLocale.fromString("de"), LdLocale.fromString("de")));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void noLanguages() throws Exception {
+        master.forLanguages(Collections.<LdLocale>emptyList());
+    }
+
+    private static LanguageDetector detector(NgramFrequencyData data, int shortTextAlgorithm) {
+        return LanguageDetectorBuilder.create(NgramExtractors.standard())
+                .shortTextAlgorithm(shortTextAlgorithm)
+                .withFrequencyData(data)
+                .build();
+    }
+
+    /**
+     * Every n-gram of the master data has the same probabilities in both, or is unknown to both.
+     */
+    private void assertSameGrams(NgramFrequencyData actual, NgramFrequencyData expected) {
+        int known = 0;
+        for (int gramIndex=0; gramIndex<master.getNumGrams(); gramIndex++) {
+            String gram = master.getGram(gramIndex);
+            double[] expectedRow = expected.getProbabilities(gram);
+            assertEquals(actual.getProbabilities(gram), expectedRow, gram);
+            if (expectedRow != null) known++;
+        }
+        assertEquals(known, expected.getNumGrams());
+    }
+
+}
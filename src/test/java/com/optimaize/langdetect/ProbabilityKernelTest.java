@@ -0,0 +1,86 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.optimaize.langdetect;
+
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.testng.Assert.*;
+
+/**
+ * Compares the kernel in use (the SIMD one when the tests run on Java 17+) with the scalar one.
+ * Array lengths that are not a multiple of any vector size make sure the tail loops are covered too.
+ */
+public class ProbabilityKernelTest {
+
+    private static final int[] LENGTHS = {1, 3, 7, 8, 17, 53, 71};
+
+    private final ProbabilityKernel scalar = new ScalarProbabilityKernel();
+    private final ProbabilityKernel kernel = ProbabilityKernel.getInstance();
+
+    @Test
+    public void multiply() throws Exception {
+        Random random = new Random(42);
+        for (int length : LENGTHS) {
+            double[] matrix = randomArray(random, length * 3);
+            double[] expected = randomArray(random, length);
+            double[] actual = Arrays.copyOf(expected, length);
+            for (int count=1; count<=3; count++) {
+                scalar.multiply(expected, matrix, length, 0.0001, count);
+                kernel.multiply(actual, matrix, length, 0.0001, count);
+                assertEquals(actual, expected, kernel.toString());
+            }
+        }
+    }
+
+    @Test
+    public void addScaled() throws Exception {
+        Random random = new Random(42);
+        for (int length : LENGTHS) {
+            double[] matrix = randomArray(random, length * 3);
+            double[] expected = randomArray(random, length);
+            double[] actual = Arrays.copyOf(expected, length);
+            scalar.addScaled(expected, matrix, length * 2, 3);
+            kernel.addScaled(actual, matrix, length * 2, 3);
+            assertEquals(actual, expected, kernel.toString());
+        }
+    }
+
+    @Test
+    public void normalize() throws Exception {
+        Random random = new Random(42);
+        for (int length : LENGTHS) {
+            double[] expected = randomArray(random, length);
+            double[] actual = Arrays.copyOf(expected, length);
+            double expectedMax = scalar.normalize(expected);
+            double actualMax = kernel.normalize(actual);
+            assertEquals(actualMax, expectedMax, 1e-12);
+            for (int i=0; i<length; i++) {
+                assertEquals(actual[i], expected[i], 1e-12);
+            }
+        }
+    }
+
+    private static double[] randomArray(Random random, int length) {
+        double[] array = new double[length];
+        for (int i=0; i<length; i++) {
+            array[i] = random.nextDouble();
+        }
+        return array;
+    }
+
+}
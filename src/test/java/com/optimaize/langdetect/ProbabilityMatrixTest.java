@@ -0,0 +1,118 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.optimaize.langdetect;
+
+import com.google.common.collect.ImmutableList;
+import com.optimaize.langdetect.profiles.LanguageProfileReader;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.testng.Assert.*;
+
+public class ProbabilityMatrixTest {
+
+    private static final int NUM_LANGUAGES = 13;
+
+    @Test
+    public void roundingWithinPrecision() throws Exception {
+        double[] values = randomProbabilities(new Random(42));
+        checkRounding(values, ProbabilityPrecision.DOUBLE, 0d);
+        checkRounding(values, ProbabilityPrecision.FLOAT, 1e-7);
+        checkRounding(values, ProbabilityPrecision.LOG16, 1e-4);
+        checkRounding(values, ProbabilityPrecision.LOG8, 0.03);
+    }
+
+    private void checkRounding(double[] values, ProbabilityPrecision precision, double maxRelativeError) {
+        ProbabilityMatrix matrix = ProbabilityMatrix.create(values, precision);
+        assertEquals(matrix.getPrecision(), precision);
+        assertEquals(matrix.size(), values.length);
+        for (int i=0; i<values.length; i++) {
+            if (values[i] == 0d) {
+                assertEquals(matrix.get(i), 0d, precision.toString());
+            } else {
+                assertEquals(matrix.get(i) / values[i], 1d, maxRelativeError, precision.toString());
+            }
+        }
+    }
+
+    @Test
+    public void multiplySameAsPerValue() throws Exception {
+        Random random = new Random(42);
+        double[] values = randomProbabilities(random);
+        ProbabilityKernel kernel = ProbabilityKernel.getInstance();
+        for (ProbabilityPrecision precision : ProbabilityPrecision.values()) {
+            ProbabilityMatrix matrix = ProbabilityMatrix.create(values, precision);
+            for (int count=1; count<=3; count++) {
+                double[] expected = new double[NUM_LANGUAGES];
+                Arrays.fill(expected, 1d / NUM_LANGUAGES);
+                double[] actual = expected.clone();
+                int offset = random.nextInt(values.length / NUM_LANGUAGES) * NUM_LANGUAGES;
+                for (int i=0; i<NUM_LANGUAGES; i++) {
+                    for (int amount=0; amount<count; amount++) {
+                        expected[i] *= 0.00005 + matrix.get(offset + i);
+                    }
+                }
+                matrix.multiply(kernel, actual, offset, 0.00005, count);
+                assertEquals(actual, expected, precision.toString());
+            }
+        }
+    }
+
+    @Test
+    public void onlyZeros() throws Exception {
+        for (ProbabilityPrecision precision : ProbabilityPrecision.values()) {
+            ProbabilityMatrix matrix = ProbabilityMatrix.create(new double[NUM_LANGUAGES], precision);
+            for (int i=0; i<NUM_LANGUAGES; i++) {
+                assertEquals(matrix.get(i), 0d);
+            }
+        }
+    }
+
+    @Test
+    public void withPrecision() throws Exception {
+        NgramFrequencyData data = NgramFrequencyData.create(new LanguageProfileReader().read(ImmutableList.of("de", "fr", "it")), ImmutableList.of(1, 2, 3));
+        assertEquals(data.getPrecision(), ProbabilityPrecision.DOUBLE);
+        assertSame(data.withPrecision(ProbabilityPrecision.DOUBLE), data);
+        NgramFrequencyData compact = data.withPrecision(ProbabilityPrecision.LOG16);
+        assertEquals(compact.getPrecision(), ProbabilityPrecision.LOG16);
+        assertSame(compact.withPrecision(ProbabilityPrecision.LOG16), compact);
+        assertEquals(compact.getLanguageList(), data.getLanguageList());
+        assertEquals(compact.getNumGrams(), data.getNumGrams());
+        double[] expected = data.getProbabilities("der");
+        double[] actual = compact.getProbabilities("der");
+        assertNotNull(actual);
+        for (int i=0; i<expected.length; i++) {
+            assertEquals(actual[i], expected[i], expected[i] * 1e-4);
+        }
+        assertNull(compact.getProbabilities("xq#"));
+    }
+
+    /**
+     * Mostly zeros, the others spread over the range of real n-gram probabilities.
+     */
+    private static double[] randomProbabilities(Random random) {
+        double[] values = new double[100 * NUM_LANGUAGES];
+        for (int i=0; i<values.length; i++) {
+            if (random.nextInt(3) == 0) {
+                values[i] = Math.exp(-1 - random.nextDouble() * 11);
+            }
+        }
+        return values;
+    }
+
+}
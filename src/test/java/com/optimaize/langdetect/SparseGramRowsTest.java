@@ -0,0 +1,92 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.optimaize.langdetect;
+
+import com.google.common.collect.ImmutableList;
+import com.optimaize.langdetect.profiles.LanguageProfileReader;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+import static org.testng.Assert.*;
+
+public class SparseGramRowsTest {
+
+    private final NgramFrequencyData data;
+
+    public SparseGramRowsTest() throws Exception {
+        data = NgramFrequencyData.create(new LanguageProfileReader().read(ImmutableList.of("de", "fr", "it", "es", "nl", "en")), ImmutableList.of(1, 2, 3));
+    }
+
+    @Test
+    public void sameProbabilities() throws Exception {
+        for (int maxLanguages : new int[]{1, 3, 6}) {
+            NgramFrequencyData sparse = data.withSparseGrams(maxLanguages);
+            assertEquals(sparse.getSparseGramLanguages(), maxLanguages);
+            assertSame(sparse.withSparseGrams(maxLanguages), sparse);
+            for (int gramIndex=0; gramIndex<data.getNumGrams(); gramIndex++) {
+                for (int i=0; i<data.getLanguageList().size(); i++) {
+                    assertEquals(sparse.getProbability(gramIndex, i), data.getProbability(gramIndex, i));
+                }
+            }
+            assertEquals(sparse.getMaxProbability(), data.getMaxProbability());
+            assertEquals(sparse.withSparseGrams(0).getProbabilities("der"), data.getProbabilities("der"));
+        }
+    }
+
+    /**
+     * With the deferred factor applied, multiply() gives the same as the full rows.
+     */
+    @Test
+    public void multiplySameAsFullRows() throws Exception {
+        NgramFrequencyData sparse = data.withSparseGrams(3).withPrecision(ProbabilityPrecision.FLOAT);
+        NgramFrequencyData dense = data.withPrecision(ProbabilityPrecision.FLOAT);
+        ProbabilityKernel kernel = ProbabilityKernel.getInstance();
+        Random random = new Random(42);
+        int numLanguages = data.getLanguageList().size();
+        //includes the weights and counts that are not deferred:
+        double[] weights = {0.00005, 0.0005, 0d};
+        for (int round=0; round<1000; round++) {
+            int gramIndex = random.nextInt(data.getNumGrams());
+            double weight = weights[random.nextInt(weights.length)];
+            int count = 1 + random.nextInt(6);
+            double[] expected = new double[numLanguages];
+            for (int i=0; i<numLanguages; i++) expected[i] = random.nextDouble();
+            double[] actual = expected.clone();
+            assertEquals(dense.multiply(kernel, expected, gramIndex, weight, count), 1d);
+            double deferred = sparse.multiply(kernel, actual, gramIndex, weight, count);
+            for (int i=0; i<numLanguages; i++) {
+                assertEquals(actual[i] * deferred, expected[i], expected[i] * 1e-12);
+            }
+        }
+    }
+
+    @Test
+    public void writtenSparse() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new NgramFrequencyDataWriter().write(data.withSparseGrams(2), out);
+        NgramFrequencyData read = new NgramFrequencyDataReader().read(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(read.getSparseGramLanguages(), 2);
+        for (int gramIndex=0; gramIndex<data.getNumGrams(); gramIndex+=7) {
+            for (int i=0; i<data.getLanguageList().size(); i++) {
+                assertEquals(read.getProbability(gramIndex, i), data.getProbability(gramIndex, i));
+            }
+        }
+    }
+
+}
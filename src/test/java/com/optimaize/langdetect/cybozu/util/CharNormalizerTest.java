@@ -85,6 +85,29 @@ public class CharNormalizerTest {
         assertEquals(CharNormalizer.normalize('\u4E30'), '\u4E30');
     }
 
+    /**
+     * Test method for {@link CharNormalizer#normalize(char[], int, int, char[])}, must be the same as char by char.
+     */
+    @Test
+    public final void testNormalizeBulk() {
+        char[] src = new char[65536 + 2];
+        for (int c=0; c<=65535; c++) {
+            src[c + 1] = (char)c;
+        }
+        char[] dst = new char[src.length];
+        CharNormalizer.normalize(src, 1, 65536, dst);
+        assertEquals(dst[0], '\u0000');
+        assertEquals(dst[src.length - 1], '\u0000');
+        for (int c=0; c<=65535; c++) {
+            assertEquals(dst[c + 1], CharNormalizer.normalize((char)c));
+        }
+
+        //in place:
+        char[] chars = "Hello, 3 \u4E24 \u3041 World".toCharArray();
+        CharNormalizer.normalize(chars, 0, chars.length, chars);
+        assertEquals(new String(chars), "Hello    \u4E13 \u3042 World");
+    }
+
 
     /**
      * This test is not part of the automated tests, enable and run it manually to debug.
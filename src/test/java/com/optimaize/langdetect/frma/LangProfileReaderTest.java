@@ -19,8 +19,11 @@ package com.optimaize.langdetect.frma;
 import com.optimaize.langdetect.cybozu.util.LangProfile;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
@@ -48,6 +51,48 @@ public class LangProfileReaderTest {
 		checkProfileFile("nl", 3, 2163);
 	}
 
+	@Test
+	public void readGramsWithJsonSpecialChars() throws IOException {
+		LangProfile langProfile = read("{ \"name\" : \"xx\",\n \"freq\" : {\"a,\":1, \"b:\" : 2,\"\\\"c\":3,\"\\\\\":4, \"\\u00e4\":5},\n\"n_words\":[ 3,2 ,1 ] }");
+		assertThat(langProfile.getName(), is("xx"));
+		assertThat(langProfile.getNWords(), is(new int[]{3, 2, 1}));
+		assertThat(langProfile.getFreq().size(), is(5));
+		assertThat(langProfile.getFreq().get("a,"), is(1));
+		assertThat(langProfile.getFreq().get("b:"), is(2));
+		assertThat(langProfile.getFreq().get("\"c"), is(3));
+		assertThat(langProfile.getFreq().get("\\"), is(4));
+		assertThat(langProfile.getFreq().get("ä"), is(5));
+	}
+
+	@Test
+	public void skipsUnknownKeys() throws IOException {
+		LangProfile langProfile = read("{\"other\":{\"x\":[1,2.5e3,true,null,\"}\"]},\"freq\":{\"a\":1},\"n_words\":[1],\"name\":\"xx\"}");
+		assertThat(langProfile.getName(), is("xx"));
+		assertThat(langProfile.getFreq().size(), is(1));
+	}
+
+	@Test(expected = IOException.class)
+	public void truncatedJson() throws IOException {
+		read("{\"freq\":{\"a\":1,\"b\"");
+	}
+
+	@Test
+	public void writerOutputCanBeReadBack() throws IOException {
+		LangProfile langProfile = new LangProfile("xx");
+		langProfile.getFreq().put("a\"", 7);
+		langProfile.getFreq().put(",:", 8);
+		langProfile.setNWords(new int[]{7, 8, 0});
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new LangProfileWriter().write(langProfile, out);
+		LangProfile read = new LangProfileReader().read(new ByteArrayInputStream(out.toByteArray()));
+		assertThat(read.getName(), is("xx"));
+		assertThat(read.getFreq(), is(langProfile.getFreq()));
+		assertThat(read.getNWords(), is(langProfile.getNWords()));
+	}
+
+	private static LangProfile read(String json) throws IOException {
+		return new LangProfileReader().read(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+	}
 
 	private static void checkProfileFile(String language, int nWordSize, int freqSize) throws IOException {
 		File profileFile = new File(PROFILE_DIR, language);
@@ -22,6 +22,7 @@ import org.junit.Test;
 import java.util.*;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -173,4 +174,61 @@ public class NgramExtractorTest {
         assertEquals(ngrams, Arrays.asList(" F","Fo","oo","o "," b","ba","ar","r "));
     }
 
+
+
+    @Test
+    public void visitGrams_sameAsExtractGrams() {
+        String[] texts = {"Foo bar", "a", " a ", "a ", " a", "ABC def GHI", "dies ist ein längerer Text, und so."};
+        NgramExtractor[] extractors = {
+                NgramExtractors.standard(),
+                NgramExtractors.backwards(),
+                NgramExtractor.gramLengths(1, 2, 3),
+                NgramExtractor.gramLengths(3, 1),
+                NgramExtractor.gramLength(2).filter(new NgramFilter() {
+                    @Override
+                    public boolean use(String ngram) {
+                        return !ngram.startsWith("o");
+                    }
+                }),
+        };
+        for (NgramExtractor extractor : extractors) {
+            for (String text : texts) {
+                final List<String> visited = new ArrayList<>();
+                extractor.visitGrams(text, new NgramVisitor() {
+                    @Override
+                    public void visit(long packedGram, int length, int position) {
+                        assertEquals(PackedNgram.length(packedGram), length);
+                        visited.add(PackedNgram.toString(packedGram));
+                    }
+                });
+                List<String> expected = extractor.extractGrams(text);
+                Collections.sort(expected);
+                Collections.sort(visited);
+                assertEquals(expected, visited);
+            }
+        }
+    }
+
+    @Test
+    public void visitGrams_orderAndPosition() {
+        final List<String> visited = new ArrayList<>();
+        NgramExtractor.gramLengths(1, 2).textPadding(' ').visitGrams("Fo", new NgramVisitor() {
+            @Override
+            public void visit(long packedGram, int length, int position) {
+                visited.add(PackedNgram.toString(packedGram) + "@" + position);
+            }
+        });
+        assertEquals(visited, Arrays.asList(" @0", "F@1", " F@0", "o@2", "Fo@1", " @3", "o @2"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void visitGrams_tooLong() {
+        assertFalse(NgramExtractor.gramLengths(1, 4).canPack());
+        NgramExtractor.gramLengths(1, 4).visitGrams("Foo bar", new NgramVisitor() {
+            @Override
+            public void visit(long packedGram, int length, int position) {
+            }
+        });
+    }
+
 }
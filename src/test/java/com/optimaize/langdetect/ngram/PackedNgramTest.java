@@ -0,0 +1,58 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.optimaize.langdetect.ngram;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class PackedNgramTest {
+
+    @Test
+    public void roundTrip() throws Exception {
+        for (String gram : new String[]{"a", " ", "ab", "a ", " a", "abc", " ab", "ab ", "äöü", "￿￿￿"}) {
+            long packed = PackedNgram.pack(gram);
+            assertEquals(PackedNgram.length(packed), gram.length());
+            assertEquals(PackedNgram.toString(packed), gram);
+            for (int i=0; i<gram.length(); i++) {
+                assertEquals(PackedNgram.charAt(packed, i), gram.charAt(i));
+            }
+        }
+    }
+
+    @Test
+    public void lengthIsPartOfTheCode() throws Exception {
+        assertNotEquals(PackedNgram.pack('a'), PackedNgram.pack('\u0000', 'a'));
+        assertNotEquals(PackedNgram.pack('\u0000', 'a'), PackedNgram.pack('\u0000', '\u0000', 'a'));
+        assertNotEquals(PackedNgram.pack('\u0000'), 0L);
+    }
+
+    @Test
+    public void fromWindow() throws Exception {
+        long window = 0;
+        for (char c : "xabc".toCharArray()) {
+            window = (window << 16) | c;
+        }
+        assertEquals(PackedNgram.fromWindow(window, 1), PackedNgram.pack("c"));
+        assertEquals(PackedNgram.fromWindow(window, 2), PackedNgram.pack("bc"));
+        assertEquals(PackedNgram.fromWindow(window, 3), PackedNgram.pack("abc"));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void tooLong() throws Exception {
+        PackedNgram.pack("abcd");
+    }
+
+}
@@ -25,6 +25,8 @@ import java.io.IOException;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
@@ -116,6 +118,30 @@ public class LanguageProfileReaderTest {
     public void readAllBuiltIn() throws IOException {
         verify_readAllBuiltIn(new LanguageProfileReader().readAllBuiltIn());
     }
+    @Test
+    public void readAllBuiltIn_concurrently() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<LanguageProfile> profiles = new LanguageProfileReader().readAllBuiltIn(executor);
+            verify_readAllBuiltIn(profiles);
+            for (int i=0; i<profiles.size(); i++) {
+                assertEquals(profiles.get(i).getLocale(), BuiltInLanguages.getLanguages().get(i));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void read_concurrently_missingFile() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            new LanguageProfileReader().read(LanguageProfileReaderTest.class.getClassLoader(), "languages", ImmutableList.of("de", "xx-none", "fr"), executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     private void verify_readAllBuiltIn(List<LanguageProfile> profiles) {
         assertEquals(profiles.size(), 71); //adjust this number when adding more languages
         Set<LdLocale> allLangs = new HashSet<>();
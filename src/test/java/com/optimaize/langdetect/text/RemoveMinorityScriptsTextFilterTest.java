@@ -55,4 +55,36 @@ public class RemoveMinorityScriptsTextFilterTest {
         String result = filter.filter(text);
         assertEquals(text, result);
     }
+
+    /**
+     * A supplementary character is one character of its script, and removed as a whole.
+     */
+    @Test
+    public void testSupplementaryCharacters() throws Exception {
+        RemoveMinorityScriptsTextFilter filter = RemoveMinorityScriptsTextFilter.forThreshold(0.3);
+        //Latin 10, Han (extension B) 2:
+        assertEquals("Hello world ", filter.filter("Hello world \uD840\uDC00\uD840\uDC01"));
+        //Gothic 4, Latin 1:
+        assertEquals("\uD800\uDF30\uD800\uDF31\uD800\uDF32\uD800\uDF33 ", filter.filter("\uD800\uDF30\uD800\uDF31\uD800\uDF32\uD800\uDF33 a"));
+        //an emoji is common, not counted:
+        String text = "Hello \uD83D\uDE00 world";
+        assertSame(text, filter.filter(text));
+    }
+
+    @Test
+    public void testDominantScripts() throws Exception {
+        RemoveMinorityScriptsTextFilter filter = RemoveMinorityScriptsTextFilter.forThreshold(0.35);
+        int[] counts = new int[UnicodeScripts.COUNT];
+        assertEquals(1, filter.dominantScripts("Hu Jintao (in Chinese 胡錦濤) and Leo Tolstoy (in Russian Лев Николаевич Толстой) are two well known people.", counts));
+        assertEquals(60, counts[Character.UnicodeScript.LATIN.ordinal()]);
+        assertEquals(0, counts[Character.UnicodeScript.CYRILLIC.ordinal()]);
+        assertEquals(0, counts[Character.UnicodeScript.HAN.ordinal()]);
+
+        //the counts are reset, Hangul and Latin are even:
+        assertEquals(2, filter.dominantScripts("한국어 abc", counts));
+        assertEquals(3, counts[Character.UnicodeScript.HANGUL.ordinal()]);
+        assertEquals(3, counts[Character.UnicodeScript.LATIN.ordinal()]);
+
+        assertEquals(0, filter.dominantScripts("12345 ... !!!", counts));
+    }
 }
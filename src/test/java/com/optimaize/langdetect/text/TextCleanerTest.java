@@ -0,0 +1,114 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.optimaize.langdetect.text;
+
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+
+/**
+ * The {@link TextCleaner} must give the same text as the filters it replaces.
+ */
+public class TextCleanerTest {
+
+    private static final TextFilter URLS = UrlTextFilter.getInstance();
+    private static final TextFilter MINORITY_SCRIPTS = RemoveMinorityScriptsTextFilter.forThreshold(0.3);
+
+    @Test
+    public void forFilters() throws Exception {
+        assertNotNull(TextCleaner.forFilters(Collections.<TextFilter>emptyList()));
+        assertNotNull(TextCleaner.forFilters(ImmutableList.of(URLS)));
+        assertNotNull(TextCleaner.forFilters(ImmutableList.of(MINORITY_SCRIPTS)));
+        assertNotNull(TextCleaner.forFilters(ImmutableList.of(URLS, MINORITY_SCRIPTS)));
+        //another order gives another result, and unknown filters can't be fused:
+        assertNull(TextCleaner.forFilters(ImmutableList.of(MINORITY_SCRIPTS, URLS)));
+        assertNull(TextCleaner.forFilters(ImmutableList.of(URLS, URLS)));
+        assertNull(TextCleaner.forFilters(ImmutableList.<TextFilter>of(new CharNormalizerTextFilterImpl())));
+    }
+
+    @DataProvider
+    protected Object[][] texts() {
+        return new Object[][] {
+                {""},
+                {"   "},
+                {"Dies ist deutscher Text."},
+                {"deutscher Text http://www.github.com/ und mehr, see https://example.org/a?b=c&d=e#f."},
+                {"mail me at foo.bar@example.com or at x@y, not at @example.com"},
+                {"http://foo@bar.com/ ftp://example.com a@b.c"},
+                {"Hu Jintao (in Chinese 胡錦濤) and Leo Tolstoy (in Russian Лев Николаевич Толстой) are two well known people."},
+                {"Москва́ — столица России, город федерального значения, административный центр Центрального федерального округа. Latin"},
+                {"éé Ж́ ́ abc 胡́錦濤 😀 𝐀 12345 ... !!!"},
+                {readText("/texts/de-wikipedia-Deutschland.txt")},
+                {readText("/texts/fr-wikipedia-France.txt")},
+        };
+    }
+
+    @Test(dataProvider = "texts")
+    public void sameAsFilters(String text) throws Exception {
+        for (List<TextFilter> filters : Arrays.<List<TextFilter>>asList(
+                Collections.<TextFilter>emptyList(),
+                ImmutableList.of(URLS),
+                ImmutableList.of(MINORITY_SCRIPTS),
+                ImmutableList.of(URLS, MINORITY_SCRIPTS))) {
+            for (int maxTextLength : new int[]{0, 1, 20, 10000}) {
+                TextObject expected = new TextObject(new MultiTextFilter(filters), maxTextLength);
+                TextObject actual = new TextObject(new MultiTextFilter(filters), maxTextLength, TextCleaner.forFilters(filters));
+                //appended in parts, the spaces must be collapsed across them:
+                int middle = text.length() / 2;
+                for (CharSequence part : new CharSequence[]{text.substring(0, middle), " ", new StringBuilder(text.substring(middle)), text}) {
+                    expected.append(part);
+                    actual.append(part);
+                    assertEquals(actual.toString(), expected.toString(), filters + " " + maxTextLength);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void factoriesUseIt() throws Exception {
+        String text = "Hu Jintao (in Chinese 胡錦濤) and http://www.github.com/ Leo Tolstoy (in Russian Лев Николаевич Толстой)";
+        TextObject expected = new TextObject(new MultiTextFilter(ImmutableList.of(URLS, MINORITY_SCRIPTS)), 10000).append(text);
+        assertEquals(CommonTextObjectFactories.forDetectingOnLargeText().forText(text).toString(), expected.toString());
+    }
+
+    private static String readText(String path) {
+        try (InputStream inputStream = TextCleanerTest.class.getResourceAsStream(path)) {
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+                StringBuilder sb = new StringBuilder();
+                String str;
+                while ((str = in.readLine()) != null) {
+                    sb.append(str).append('\n');
+                }
+                return sb.toString();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+}
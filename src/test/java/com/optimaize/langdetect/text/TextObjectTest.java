@@ -17,6 +17,13 @@
 package com.optimaize.langdetect.text;
 
 import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
 import static org.junit.Assert.*;
 
 /**
@@ -37,4 +44,93 @@ public class TextObjectTest {
         TextObject inputText = textObjectFactory.create().append("deutscher Text").append(" ").append("http://www.github.com/");
         assertEquals(inputText.toString(), "deutscher Text ");
     }
+
+    @Test
+    public void appendReader() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        Random random = new Random(42);
+        String[] words = {"deutscher", "Text", "http://www.github.com/foo?bar=1", "foo.bar@example.com", "\uD840\uDC00", "e\u0301", "  ", "\n"};
+        while (sb.length() < 50000) {
+            sb.append(words[random.nextInt(words.length)]).append(random.nextBoolean() ? " " : "");
+        }
+        String text = sb.toString();
+        TextObjectFactory textObjectFactory = new TextObjectFactoryBuilder().withTextFilter(UrlTextFilter.getInstance()).build();
+        TextObject expected = textObjectFactory.forText(text);
+        TextObject actual = textObjectFactory.create().append(new TrickleReader(text, random));
+        assertEquals(expected.toString(), actual.toString());
+    }
+
+    @Test
+    public void appendUtf8() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        Random random = new Random(42);
+        String[] words = {"deutscher", "Москва", "東京", "http://www.github.com/", "\uD83D\uDE00", "e\u0301", "  ", "\n"};
+        while (sb.length() < 50000) {
+            sb.append(words[random.nextInt(words.length)]).append(random.nextBoolean() ? " " : "");
+        }
+        String text = sb.toString();
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        TextObjectFactory textObjectFactory = new TextObjectFactoryBuilder().withTextFilter(UrlTextFilter.getInstance()).build();
+        String expected = textObjectFactory.forText(text).toString();
+
+        assertEquals(expected, textObjectFactory.forUtf8(bytes).toString());
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length + 10);
+        direct.put(new byte[10]).put(bytes);
+        direct.position(10);
+        assertEquals(expected, textObjectFactory.forUtf8(direct).toString());
+        assertEquals(10, direct.position());
+    }
+
+    @Test
+    public void appendUtf8Malformed() throws Exception {
+        byte[] bytes = {'a', 'b', (byte) 0xC3, ' ', 'c', (byte) 0xE6, (byte) 0x9D};
+        TextObjectFactory textObjectFactory = new TextObjectFactoryBuilder().build();
+        assertEquals(textObjectFactory.forText(new String(bytes, StandardCharsets.UTF_8)).toString(),
+                textObjectFactory.forUtf8(bytes).toString());
+    }
+
+    @Test
+    public void appendReaderStopsAtMaxTextLength() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < 1000000) {
+            sb.append("deutscher Text ");
+        }
+        TrickleReader reader = new TrickleReader(sb.toString(), new Random(42));
+        TextObject textObject = new TextObjectFactoryBuilder().maxTextLength(100).build().create().append(reader);
+        assertEquals(100, textObject.length());
+        assertTrue(reader.pos < 100000);
+    }
+
+    /**
+     * Returns the text in random small pieces, and is never ready().
+     */
+    private static class TrickleReader extends Reader {
+        private final String text;
+        private final Random random;
+        private int pos = 0;
+
+        TrickleReader(String text, Random random) {
+            this.text = text;
+            this.random = random;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            if (pos == text.length()) return -1;
+            int n = Math.min(Math.min(len, 1 + random.nextInt(3000)), text.length() - pos);
+            text.getChars(pos, pos + n, cbuf, off);
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public boolean ready() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
 }
@@ -0,0 +1,44 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.optimaize.langdetect.text;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+public class UnicodeScriptsTest {
+
+    @Test
+    public void sameAsCharacter() throws Exception {
+        for (int c=0; c<=0xFFFF; c++) {
+            Character.UnicodeScript expected = Character.UnicodeScript.of(c);
+            assertEquals(UnicodeScripts.ordinalOf((char) c), expected.ordinal());
+            assertEquals(UnicodeScripts.ordinalOf(c), expected.ordinal());
+            assertEquals(UnicodeScripts.valueOf(UnicodeScripts.ordinalOf((char) c)), expected);
+        }
+        for (int codePoint=0x10000; codePoint<=Character.MAX_CODE_POINT; codePoint+=97) {
+            assertEquals(UnicodeScripts.ordinalOf(codePoint), Character.UnicodeScript.of(codePoint).ordinal());
+        }
+    }
+
+    @Test
+    public void constants() throws Exception {
+        assertEquals(UnicodeScripts.COUNT, Character.UnicodeScript.values().length);
+        assertEquals(UnicodeScripts.valueOf(UnicodeScripts.COMMON), Character.UnicodeScript.COMMON);
+        assertEquals(UnicodeScripts.valueOf(UnicodeScripts.INHERITED), Character.UnicodeScript.INHERITED);
+        assertEquals(UnicodeScripts.valueOf(UnicodeScripts.UNKNOWN), Character.UnicodeScript.UNKNOWN);
+    }
+
+}
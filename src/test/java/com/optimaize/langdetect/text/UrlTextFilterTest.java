@@ -0,0 +1,82 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.optimaize.langdetect.text;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+/**
+ * The {@link UrlTextFilter} must do exactly what its documented regular expressions do.
+ */
+public class UrlTextFilterTest {
+
+    private static final Pattern URL_REGEX = Pattern.compile("https?://[-_.?&~;+=/#0-9A-Za-z]+");
+    private static final Pattern MAIL_REGEX = Pattern.compile("[-_.0-9A-Za-z]+@[-_0-9A-Za-z]+[-_.0-9A-Za-z]+");
+
+    private static String reference(CharSequence text) {
+        String modified = URL_REGEX.matcher(text).replaceAll(" ");
+        return MAIL_REGEX.matcher(modified).replaceAll(" ");
+    }
+
+    @DataProvider
+    protected Object[][] texts() {
+        return new Object[][] {
+                {""},
+                {"Dies ist deutscher Text."},
+                {"deutscher Text http://www.github.com/ und mehr"},
+                {"see https://example.org/a?b=c&d=e#f. and http:// and http:/x and htp://x and httpss://x"},
+                {"xhttp://a http://a http://ä https://a"},
+                {"mail me at foo.bar@example.com or at x@y, not at @example.com"},
+                {"a@.b@cd a@b.c a@bc a@b. a@-b .@.. -@__ a@@bc a@b@c"},
+                {"http://foo@bar.com/ a@b.com/http://x"},
+                {"ends with http://"},
+                {"ends with a@b"},
+                {"ends with http"},
+        };
+    }
+
+    @Test(dataProvider = "texts")
+    public void sameAsRegex(String text) throws Exception {
+        assertEquals(UrlTextFilter.getInstance().filter(text), reference(text));
+        assertEquals(UrlTextFilter.getInstance().filter(new StringBuilder(text)), reference(text));
+    }
+
+    @Test
+    public void sameAsRegexRandom() throws Exception {
+        String alphabet = "htps:/@.-_?&a1Z Ä#";
+        Random random = new Random(42);
+        for (int i=0; i<20000; i++) {
+            char[] chars = new char[random.nextInt(30)];
+            for (int j=0; j<chars.length; j++) {
+                chars[j] = alphabet.charAt(random.nextInt(alphabet.length()));
+            }
+            String text = new String(chars);
+            assertEquals(UrlTextFilter.getInstance().filter(text), reference(text), text);
+        }
+    }
+
+    @Test
+    public void unchangedWithoutUrlsAndMails() throws Exception {
+        String text = "Dies ist deutscher Text: nichts zu tun.";
+        assertSame(UrlTextFilter.getInstance().filter(text), text);
+    }
+
+}